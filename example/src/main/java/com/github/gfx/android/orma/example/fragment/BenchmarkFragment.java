@@ -43,6 +43,7 @@ import android.widget.ArrayAdapter;
 import android.widget.Toast;
 
 import java.util.Date;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -178,6 +179,14 @@ public class BenchmarkFragment extends Fragment {
                     adapter.add(result);
                     return startSelectAllWithOrma();
                 })
+                .flatMap(result -> {
+                    adapter.add(result);
+                    return startToListWithOrma();
+                })
+                .flatMap(result -> {
+                    adapter.add(result);
+                    return startToListInBatchesWithOrma();
+                })
                 .flatMap(result -> {
                     adapter.add(result);
                     return startSelectAllWithRealm(); // Realm objects can only be accessed on the thread they were created.
@@ -303,6 +312,36 @@ public class BenchmarkFragment extends Fragment {
                 .observeOn(AndroidSchedulers.mainThread());
     }
 
+    Single<Result> startToListWithOrma() {
+        return Single.fromCallable(() -> {
+            long result = runWithBenchmark(() -> {
+                List<Todo> todos = orma.selectFromTodo().orderByCreatedTimeAsc().toList();
+
+                if (todos.size() != N_ITEMS) {
+                    throw new AssertionError("unexpected get: " + todos.size());
+                }
+            });
+            return new Result("Orma/toList", result);
+        })
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread());
+    }
+
+    Single<Result> startToListInBatchesWithOrma() {
+        return Single.fromCallable(() -> {
+            long result = runWithBenchmark(() -> {
+                List<Todo> todos = orma.selectFromTodo().orderByCreatedTimeAsc().toListInBatches(1000);
+
+                if (todos.size() != N_ITEMS) {
+                    throw new AssertionError("unexpected get: " + todos.size());
+                }
+            });
+            return new Result("Orma/toListInBatches", result);
+        })
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread());
+    }
+
     Single<Result> startSelectAllWithRealm() {
         return Single.fromCallable(() -> {
             long result = runWithBenchmark(() -> {
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma;
+
+import com.github.gfx.android.orma.annotation.Experimental;
+import com.github.gfx.android.orma.event.DataSetChangedEvent;
+import com.github.gfx.android.orma.event.RowIdSet;
+
+import android.database.sqlite.SQLiteStatement;
+import android.support.annotation.CheckResult;
+import android.support.annotation.NonNull;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Single;
+
+/**
+ * Represents a prepared statement to update models in batch, i.e. {@code UPDATE table SET a = ?, b = ? WHERE pk = ?},
+ * which binds the values of each model. Unlike {@link Updater}, which sets the same values to the rows matched by
+ * a condition, it sets different values to each row identified by the primary key of the model.
+ */
+@Experimental
+public class BulkUpdater<Model> implements Closeable {
+
+    static final String IMPLICIT_PRIMARY_KEY_NAME = "_rowid_";
+
+    final OrmaConnection conn;
+
+    final Schema<Model> schema;
+
+    final ColumnDef<Model, ?>[] columns;
+
+    final SQLiteStatement statement;
+
+    final String sql;
+
+    /**
+     * {@code true} if the primary key is an alias of the rowid, so that updated rows are notified by their rowids
+     */
+    final boolean rowIdPrimaryKey;
+
+    /**
+     * @param columns The columns to update, which must not include the primary key
+     * @throws IllegalArgumentException if the model has no {@code @PrimaryKey}
+     */
+    public BulkUpdater(@NonNull OrmaConnection conn, @NonNull Schema<Model> schema,
+            @NonNull ColumnDef<Model, ?>[] columns) {
+        if (columns.length == 0) {
+            throw new IllegalArgumentException("No columns to update");
+        }
+        checkPrimaryKey(schema);
+        this.rowIdPrimaryKey = "INTEGER".equals(schema.getPrimaryKey().storageType);
+        this.conn = conn;
+        this.schema = schema;
+        this.columns = columns;
+
+        StringBuilder sb = new StringBuilder("UPDATE ");
+        sb.append(schema.getEscapedTableName());
+        sb.append(" SET ");
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].isPrimaryKey()) {
+                throw new IllegalArgumentException("Can't update the primary key: " + columns[i]);
+            }
+            if (i != 0) {
+                sb.append(',');
+            }
+            sb.append(columns[i].getEscapedName());
+            sb.append("=?");
+        }
+        sb.append(" WHERE ");
+        sb.append(schema.getPrimaryKey().getEscapedName());
+        sb.append("=?");
+        sql = sb.toString();
+        statement = conn.acquireStatement(sql);
+    }
+
+    /**
+     * Rows are found by the primary key, so the implicit {@code _rowid_} of models without {@code @PrimaryKey},
+     * which is not readable from models, does not work.
+     */
+    static void checkPrimaryKey(@NonNull Schema<?> schema) {
+        if (IMPLICIT_PRIMARY_KEY_NAME.equals(schema.getPrimaryKey().name)) {
+            throw new IllegalArgumentException("Missing @PrimaryKey definition to update rows of "
+                    + schema.getModelClass().getName());
+        }
+    }
+
+    /**
+     * Updates the row of {@code model} with the values of the columns in {@code model}.
+     *
+     * @param model A model to update
+     * @return The number of rows updated, i.e. {@code 1}, or {@code 0} if the row does not exist
+     */
+    public int execute(@NonNull Model model) {
+        int count = update(model);
+        if (count > 0) {
+            conn.trigger(DataSetChangedEvent.Type.UPDATE, schema,
+                    rowIdPrimaryKey ? RowIdSet.of(getRowId(model)) : RowIdSet.ALL);
+        }
+        return count;
+    }
+
+    int update(@NonNull final Model model) {
+        if (conn.trace) {
+            conn.trace(sql, convertToArgs(model));
+        }
+        ColumnDef<Model, ?> primaryKey = schema.getPrimaryKey();
+        long startTime = conn.queryStartTime();
+        int count;
+        statement.clearBindings();
+        for (int i = 0; i < columns.length; i++) {
+            OrmaConnection.bindArg(statement, i + 1, columns[i].getSerialized(model));
+        }
+        OrmaConnection.bindArg(statement, columns.length + 1, primaryKey.getSerialized(model));
+        count = statement.executeUpdateDelete();
+        if (conn.queryListener != null) {
+            conn.queryListener.onQuery(new QueryEvent(QueryEvent.Type.UPDATE, sql, System.nanoTime() - startTime, count) {
+                @Override
+                protected Object[] loadBindArgs() {
+                    return convertToArgs(model);
+                }
+            });
+        }
+        return count;
+    }
+
+    long getRowId(@NonNull Model model) {
+        return ((Number) schema.getPrimaryKey().getSerialized(model)).longValue();
+    }
+
+    @NonNull
+    Object[] convertToArgs(@NonNull Model model) {
+        Object[] args = new Object[columns.length + 1];
+        for (int i = 0; i < columns.length; i++) {
+            args[i] = columns[i].getSerialized(model);
+        }
+        args[columns.length] = schema.getPrimaryKey().getSerialized(model);
+        return args;
+    }
+
+    /**
+     * <p>Updates the rows of {@code models} in a transaction, executing the prepared statement for each model.</p>
+     *
+     * <p>It triggers a single {@link DataSetChangedEvent} after all the models are updated.</p>
+     *
+     * @param models model objects to update
+     * @return The number of rows updated
+     */
+    public int executeAll(@NonNull final Iterable<Model> models) {
+        final AtomicInteger count = new AtomicInteger();
+        final List<Long> rowIds = new ArrayList<>();
+        conn.transactionSync(new Runnable() {
+            @Override
+            public void run() {
+                int n = 0;
+                for (Model model : models) {
+                    int updated = update(model);
+                    if (updated > 0 && rowIdPrimaryKey) {
+                        rowIds.add(getRowId(model));
+                    }
+                    n += updated;
+                }
+                count.set(n);
+            }
+        });
+        if (count.get() > 0) {
+            conn.trigger(DataSetChangedEvent.Type.UPDATE, schema, rowIdPrimaryKey ? toRowIdSet(rowIds) : RowIdSet.ALL);
+        }
+        return count.get();
+    }
+
+    @NonNull
+    static RowIdSet toRowIdSet(@NonNull List<Long> rowIds) {
+        long[] values = new long[rowIds.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = rowIds.get(i);
+        }
+        return RowIdSet.of(values);
+    }
+
+    /**
+     * {@link Single} wrapper to {@code executeAll(Iterable<Model>)}.
+     *
+     * @param models model objects to update
+     * @return It yields the number of rows updated
+     */
+    @CheckResult
+    @NonNull
+    public Single<Integer> executeAllAsSingle(@NonNull final Iterable<Model> models) {
+        return Single.fromCallable(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                return executeAll(models);
+            }
+        });
+    }
+
+    @NonNull
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Releases the prepared statement. It is returned to the statement cache of the connection if cached.
+     */
+    @Override
+    public void close() {
+        conn.releaseStatement(sql, statement);
+    }
+}
@@ -38,7 +38,7 @@ public abstract class Deleter<Model, D extends Deleter<Model, ?>> extends OrmaCo
      * @return Number of rows deleted.
      */
     public int execute() {
-        return conn.delete(getSchema(), getWhereClause(), getBindArgs());
+        return conn.delete(getSchema(), getWhereClause(), getTypedBindArgs(), getRowIdSet());
     }
 
     @CheckResult
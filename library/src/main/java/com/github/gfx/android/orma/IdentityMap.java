@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma;
+
+import com.github.gfx.android.orma.annotation.Experimental;
+import com.github.gfx.android.orma.event.RowIdSet;
+
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded LRU cache of models keyed by their model class and primary key, owned by an {@link OrmaConnection}.
+ * It is used by {@link SingleAssociation} to load the same row only once.
+ *
+ * <p>Entries are invalidated by inserters, updaters and deleters through {@link OrmaConnection#trigger}.
+ * Changes made inside a transaction are invalidated again when the transaction ends, and all the entries are
+ * invalidated if it fails. Writes by raw SQL are not tracked, so call {@link #evictAll()} after them.</p>
+ */
+@Experimental
+public class IdentityMap {
+
+    final int maxSize;
+
+    final LinkedHashMap<Key, Object> models;
+
+    /**
+     * Invalidations inside the current transaction, which are applied again when it ends
+     */
+    final Map<Class<?>, RowIdSet> pendingInvalidations = new HashMap<>();
+
+    boolean transactionFailed = false;
+
+    /**
+     * Incremented on each invalidation, so that models loaded before it are not cached.
+     */
+    long version = 0;
+
+    long hitCount = 0;
+
+    long missCount = 0;
+
+    public IdentityMap(@IntRange(from = 0) int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must not be negative: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.models = new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+                return size() > IdentityMap.this.maxSize;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    public synchronized <Model> Model get(@NonNull Schema<Model> schema, @NonNull Object primaryKey) {
+        if (!isEnabled()) {
+            return null;
+        }
+        Model model = (Model) models.get(new Key(schema.getModelClass(), primaryKey));
+        if (model != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return model;
+    }
+
+    /**
+     * @return The version to pass to {@link #put(Schema, Object, Object, long)}, taken before loading a model
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Caches {@code model} unless any model has been invalidated since {@code version} was taken.
+     */
+    public synchronized <Model> void put(@NonNull Schema<Model> schema, @NonNull Object primaryKey,
+            @NonNull Model model, long version) {
+        if (!isEnabled() || this.version != version) {
+            return;
+        }
+        models.put(new Key(schema.getModelClass(), primaryKey), model);
+    }
+
+    /**
+     * @param rowIds        Rowids of the changed rows
+     * @param inTransaction {@code true} to invalidate them again when the transaction ends
+     */
+    public synchronized void invalidate(@NonNull Schema<?> schema, @NonNull RowIdSet rowIds, boolean inTransaction) {
+        if (!isEnabled()) {
+            return;
+        }
+        Class<?> modelClass = schema.getModelClass();
+        if (inTransaction) {
+            RowIdSet pending = pendingInvalidations.get(modelClass);
+            pendingInvalidations.put(modelClass, pending != null ? pending.union(rowIds) : rowIds);
+        }
+        invalidate(modelClass, rowIds);
+    }
+
+    private void invalidate(@NonNull Class<?> modelClass, @NonNull RowIdSet rowIds) {
+        version++;
+        Iterator<Key> keys = models.keySet().iterator();
+        while (keys.hasNext()) {
+            Key key = keys.next();
+            if (key.modelClass == modelClass
+                    && (!(key.primaryKey instanceof Long) || rowIds.contains((Long) key.primaryKey))) {
+                keys.remove();
+            }
+        }
+    }
+
+    /**
+     * Called on the end of each transaction, including nested ones.
+     *
+     * @param successful {@code false} if the transaction is rolled back
+     * @param outermost  {@code true} if no transaction remains
+     */
+    public synchronized void endTransaction(boolean successful, boolean outermost) {
+        if (!successful) {
+            transactionFailed = true;
+        }
+        if (!outermost) {
+            return;
+        }
+        if (transactionFailed) {
+            evictAll();
+        } else {
+            for (Map.Entry<Class<?>, RowIdSet> entry : pendingInvalidations.entrySet()) {
+                invalidate(entry.getKey(), entry.getValue());
+            }
+        }
+        pendingInvalidations.clear();
+        transactionFailed = false;
+    }
+
+    public synchronized void evictAll() {
+        version++;
+        models.clear();
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    public synchronized int size() {
+        return models.size();
+    }
+
+    public synchronized long hitCount() {
+        return hitCount;
+    }
+
+    public synchronized long missCount() {
+        return missCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "IdentityMap{" +
+                "maxSize=" + maxSize +
+                ", size=" + models.size() +
+                ", hits=" + hitCount +
+                ", misses=" + missCount +
+                '}';
+    }
+
+    static final class Key {
+
+        final Class<?> modelClass;
+
+        final Object primaryKey;
+
+        Key(@NonNull Class<?> modelClass, @NonNull Object primaryKey) {
+            this.modelClass = modelClass;
+            // integral keys are compared as rowids
+            this.primaryKey = (primaryKey instanceof Integer || primaryKey instanceof Short
+                    || primaryKey instanceof Byte) ? (Object) ((Number) primaryKey).longValue() : primaryKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return modelClass == other.modelClass && primaryKey.equals(other.primaryKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * modelClass.hashCode() + primaryKey.hashCode();
+        }
+    }
+}
@@ -17,15 +17,19 @@ package com.github.gfx.android.orma;
 
 import com.github.gfx.android.orma.annotation.OnConflict;
 import com.github.gfx.android.orma.event.DataSetChangedEvent;
+import com.github.gfx.android.orma.event.RowIdSet;
 import com.github.gfx.android.orma.exception.InsertionFailureException;
 
-import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteStatement;
 import android.support.annotation.CheckResult;
 import android.support.annotation.NonNull;
 
 import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import io.reactivex.Observable;
 import io.reactivex.ObservableEmitter;
@@ -37,10 +41,23 @@ import io.reactivex.Single;
  */
 public class Inserter<Model> implements Closeable {
 
+    /**
+     * The default {@code SQLITE_MAX_VARIABLE_NUMBER}, the max number of bind parameters in a statement.
+     */
+    static final int MAX_BIND_PARAMETERS = 999;
+
+    /**
+     * The default {@code SQLITE_MAX_COMPOUND_SELECT}, which limits the number of rows in a {@code VALUES} clause
+     * before SQLite 3.8.8.
+     */
+    static final int MAX_ROWS_IN_VALUES = 500;
+
     final OrmaConnection conn;
 
     final Schema<Model> schema;
 
+    final int onConflictAlgorithm;
+
     final boolean withoutAutoId;
 
     final SQLiteStatement statement;
@@ -48,12 +65,12 @@ public class Inserter<Model> implements Closeable {
     final String sql;
 
     public Inserter(OrmaConnection conn, Schema<Model> schema, @OnConflict int onConflictAlgorithm, boolean withoutAutoId) {
-        SQLiteDatabase db = conn.getWritableDatabase();
         this.conn = conn;
         this.schema = schema;
+        this.onConflictAlgorithm = onConflictAlgorithm;
         this.withoutAutoId = withoutAutoId;
         sql = schema.getInsertStatement(onConflictAlgorithm, withoutAutoId);
-        statement = db.compileStatement(sql);
+        statement = conn.acquireStatement(sql);
     }
 
     public Inserter(OrmaConnection conn, Schema<Model> schema) {
@@ -68,12 +85,36 @@ public class Inserter<Model> implements Closeable {
      * @return The last inserted row id
      */
     public long execute(@NonNull Model model) {
+        long rowId = insert(model);
+        conn.trigger(DataSetChangedEvent.Type.INSERT, schema, getChangedRowIds(rowId));
+        return rowId;
+    }
+
+    @NonNull
+    RowIdSet getChangedRowIds(long rowId) {
+        if (onConflictAlgorithm == OnConflict.REPLACE) {
+            return RowIdSet.ALL; // it may delete other rows
+        }
+        return rowId != -1 ? RowIdSet.of(rowId) : RowIdSet.EMPTY;
+    }
+
+    long insert(@NonNull final Model model) {
         if (conn.trace) {
             conn.trace(sql, schema.convertToArgs(conn, model, withoutAutoId));
         }
+        long startTime = conn.queryStartTime();
+        long rowId;
         schema.bindArgs(conn, statement, model, withoutAutoId);
-        long rowId = statement.executeInsert();
-        conn.trigger(DataSetChangedEvent.Type.INSERT, schema);
+        rowId = statement.executeInsert();
+        if (conn.queryListener != null) {
+            conn.queryListener.onQuery(new QueryEvent(QueryEvent.Type.INSERT, sql, System.nanoTime() - startTime,
+                    rowId != -1 ? 1 : 0) {
+                @Override
+                protected Object[] loadBindArgs() {
+                    return schema.convertToArgs(conn, model, withoutAutoId);
+                }
+            });
+        }
         return rowId;
     }
 
@@ -89,10 +130,124 @@ public class Inserter<Model> implements Closeable {
         }
     }
 
-    public void executeAll(@NonNull Iterable<Model> models) {
+    /**
+     * <p>Inserts {@code models} in a transaction, packing multiple rows into a {@code INSERT ... VALUES (...), (...)}
+     * statement as long as the number of bind parameters allows. The statements are cached by the connection for each
+     * number of rows.</p>
+     *
+     * <p>It triggers a single {@link DataSetChangedEvent} after all the models are inserted.</p>
+     *
+     * @param models model objects to insert
+     */
+    public void executeAll(@NonNull final Iterable<Model> models) {
+        final AtomicInteger count = new AtomicInteger();
+        conn.transactionSync(new Runnable() {
+            @Override
+            public void run() {
+                count.set(insertAll(models));
+            }
+        });
+        if (count.get() > 0) {
+            conn.trigger(DataSetChangedEvent.Type.INSERT, schema);
+        }
+    }
+
+    int insertAll(@NonNull Iterable<Model> models) {
+        int count = 0;
+        int maxRows = getMaxRowsInStatement();
+        List<Model> rows = new ArrayList<>(maxRows);
         for (Model model : models) {
-            execute(model);
+            rows.add(model);
+            if (rows.size() == maxRows) {
+                count += insertRows(rows);
+                rows.clear();
+            }
+        }
+        if (!rows.isEmpty()) {
+            count += insertRows(rows);
         }
+        return count;
+    }
+
+    int getMaxRowsInStatement() {
+        if (conn.getSQLiteVersionNumber() < 3007011) {
+            return 1; // multi-row VALUES requires SQLite 3.7.11
+        }
+        int numParameters = countParameters(getValuesRow());
+        return Math.max(1, Math.min(MAX_ROWS_IN_VALUES, MAX_BIND_PARAMETERS / Math.max(1, numParameters)));
+    }
+
+    int insertRows(@NonNull List<Model> rows) {
+        int numRows = rows.size();
+        if (numRows == 1) {
+            insert(rows.get(0));
+            return 1;
+        }
+
+        String valuesRow = getValuesRow();
+        int numParameters = countParameters(valuesRow);
+
+        StringBuilder multiRowSql = new StringBuilder(sql.length() + (valuesRow.length() + 1) * (numRows - 1));
+        multiRowSql.append(sql);
+        for (int i = 1; i < numRows; i++) {
+            multiRowSql.append(',');
+            multiRowSql.append(valuesRow);
+        }
+        String batchSql = multiRowSql.toString();
+
+        if (conn.trace) {
+            List<Object> args = new ArrayList<>(numParameters * numRows);
+            for (Model model : rows) {
+                for (Object arg : schema.convertToArgs(conn, model, withoutAutoId)) {
+                    args.add(arg);
+                }
+            }
+            conn.trace(batchSql, args.toArray());
+        }
+
+        SQLiteStatement batchStatement = conn.acquireStatement(batchSql);
+        try {
+            long startTime = conn.queryStartTime();
+            for (int i = 0; i < numRows; i++) {
+                schema.bindArgs(conn, batchStatement, rows.get(i), withoutAutoId, i * numParameters);
+            }
+            batchStatement.executeInsert();
+            if (conn.queryListener != null) {
+                final List<Model> models = rows; // "rows" is a field of QueryEvent
+                conn.queryListener.onQuery(new QueryEvent(QueryEvent.Type.INSERT, batchSql,
+                        System.nanoTime() - startTime, numRows) {
+                    @Override
+                    protected Object[] loadBindArgs() {
+                        List<Object> args = new ArrayList<>();
+                        for (Model model : models) {
+                            Collections.addAll(args, schema.convertToArgs(conn, model, withoutAutoId));
+                        }
+                        return args.toArray();
+                    }
+                });
+            }
+        } finally {
+            conn.releaseStatement(batchSql, batchStatement);
+        }
+        return numRows;
+    }
+
+    /**
+     * @return The last parenthesized row of the {@code VALUES} clause, e.g. {@code (?,?,?)}
+     */
+    @NonNull
+    String getValuesRow() {
+        return sql.substring(sql.lastIndexOf('('));
+    }
+
+    static int countParameters(@NonNull String valuesRow) {
+        int count = 0;
+        for (int i = 0; i < valuesRow.length(); i++) {
+            if (valuesRow.charAt(i) == '?') {
+                count++;
+            }
+        }
+        return count;
     }
 
     /**
@@ -130,7 +285,8 @@ public class Inserter<Model> implements Closeable {
     }
 
     /**
-     * {@link Observable} wrapper to {@code execute(Iterable<Model>)}
+     * {@link Observable} wrapper to {@code execute(Model)} for each model. Unlike {@link #executeAll(Iterable)},
+     * it inserts models one by one to yield their row ids.
      *
      * @param models model objects to insert
      * @return It yields the inserted row ids
@@ -149,8 +305,11 @@ public class Inserter<Model> implements Closeable {
         });
     }
 
+    /**
+     * Releases the prepared statement. It is returned to the statement cache of the connection if cached.
+     */
     @Override
     public void close() {
-        statement.close();
+        conn.releaseStatement(sql, statement);
     }
 }
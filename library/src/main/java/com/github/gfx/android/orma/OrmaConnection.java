@@ -18,6 +18,7 @@ package com.github.gfx.android.orma;
 import com.github.gfx.android.orma.annotation.Experimental;
 import com.github.gfx.android.orma.event.DataSetChangedEvent;
 import com.github.gfx.android.orma.event.DataSetChangedTrigger;
+import com.github.gfx.android.orma.event.RowIdSet;
 import com.github.gfx.android.orma.exception.DatabaseAccessOnMainThreadException;
 import com.github.gfx.android.orma.exception.NoValueException;
 import com.github.gfx.android.orma.migration.MigrationEngine;
@@ -29,7 +30,11 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteCursor;
+import android.database.sqlite.SQLiteCursorDriver;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteProgram;
+import android.database.sqlite.SQLiteQuery;
 import android.database.sqlite.SQLiteQueryBuilder;
 import android.database.sqlite.SQLiteStatement;
 import android.os.Build;
@@ -42,6 +47,8 @@ import android.util.Log;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import io.reactivex.Observable;
 
@@ -71,13 +78,47 @@ public class OrmaConnection {
 
     final boolean trace;
 
+    @Nullable
+    final QueryListener queryListener;
+
     final AccessThreadConstraint readOnMainThread;
 
     final AccessThreadConstraint writeOnMainThread;
 
-    final DataSetChangedTrigger trigger = new DataSetChangedTrigger();
+    final DataSetChangedTrigger trigger;
+
+    final StatementCache statementCache;
+
+    final IdentityMap identityMap;
+
+    final int readConnectionPoolSize;
+
+    final AtomicInteger nextReader = new AtomicInteger();
+
+    /**
+     * The thread of the main looper, cached because {@link Looper#getMainLooper()} is synchronized.
+     */
+    final Thread mainThread;
+
+    /**
+     * It is written only once in {@link #migrate()}, so accessors skip the connection monitor after migration.
+     */
+    volatile boolean migrationCompleted = false;
+
+    /**
+     * Read-only connections opened after migration, or {@code null} until the first read.
+     * It is an empty array if the read connection pool is disabled.
+     */
+    @Nullable
+    volatile SQLiteDatabase[] readers;
 
-    boolean migrationCompleted = false;
+    /**
+     * The features of the SQLite library are probed once when the database is opened,
+     * so that building queries never touches the database.
+     */
+    final int sqliteVersionNumber;
+
+    final boolean json1Available;
 
     public OrmaConnection(@NonNull OrmaDatabaseBuilderBase<?> builder, List<Schema<?>> schemas) {
         this.name = builder.name;
@@ -89,9 +130,17 @@ public class OrmaConnection {
 
         this.tryParsingSql = builder.tryParsingSql;
         this.trace = builder.trace;
+        this.queryListener = builder.queryListener;
         this.readOnMainThread = builder.readOnMainThread;
         this.writeOnMainThread = builder.writeOnMainThread;
+        this.statementCache = new StatementCache(builder.statementCacheSize);
+        this.identityMap = new IdentityMap(builder.identityMapSize);
+        this.readConnectionPoolSize = builder.readConnectionPoolSize;
+        this.trigger = new DataSetChangedTrigger(builder.eventCoalescingWindowMillis);
+        this.mainThread = Looper.getMainLooper().getThread();
         this.db = openDatabase(builder.context);
+        this.sqliteVersionNumber = parseSQLiteVersion(DatabaseUtils.stringForQuery(db, "SELECT sqlite_version()", null));
+        this.json1Available = probeJson1(db);
 
         checkSchemas(schemas);
     }
@@ -130,9 +179,60 @@ public class OrmaConnection {
         return schemas;
     }
 
-    public synchronized SQLiteDatabase getWritableDatabase() {
+    /**
+     * @return The version of the SQLite library in the form of {@code SQLITE_VERSION_NUMBER},
+     * e.g. {@code 3008010} for SQLite 3.8.10
+     */
+    public int getSQLiteVersionNumber() {
+        return sqliteVersionNumber;
+    }
+
+    /**
+     * @return {@code true} if the SQLite library has the JSON1 extension, e.g. {@code json_each()}
+     */
+    public boolean isJson1Available() {
+        return json1Available;
+    }
+
+    static boolean probeJson1(@NonNull SQLiteDatabase db) {
+        try {
+            DatabaseUtils.stringForQuery(db, "SELECT json_array()", null);
+            return true;
+        } catch (SQLiteException e) {
+            return false;
+        }
+    }
+
+    static int parseSQLiteVersion(@NonNull String version) {
+        String[] parts = version.split("\\.");
+        int number = 0;
+        for (int i = 0; i < 3; i++) {
+            number *= 1000;
+            if (i < parts.length) {
+                number += Integer.parseInt(parts[i]);
+            }
+        }
+        return number;
+    }
+
+    /**
+     * Runs migration unless it has been completed. It is invoked on the first access of the database, so
+     * calling it explicitly is optional.
+     */
+    public void migrate() {
+        if (!migrationCompleted) {
+            synchronized (this) {
+                if (!migrationCompleted) {
+                    onMigrate(db);
+                    migrationCompleted = true;
+                }
+            }
+        }
+    }
+
+    public SQLiteDatabase getWritableDatabase() {
         if (writeOnMainThread != AccessThreadConstraint.NONE) {
-            if (Looper.getMainLooper().getThread() == Thread.currentThread()) {
+            if (mainThread == Thread.currentThread()) {
                 if (writeOnMainThread == AccessThreadConstraint.FATAL) {
                     throw new DatabaseAccessOnMainThreadException("Writing things must run in background");
                 } else {
@@ -140,16 +240,19 @@ public class OrmaConnection {
                 }
             }
         }
-        if (!migrationCompleted) {
-            onMigrate(db);
-            migrationCompleted = true;
-        }
+        migrate();
         return db;
     }
 
-    public synchronized SQLiteDatabase getReadableDatabase() {
+    /**
+     * Returns a database handle to read things. If the read connection pool is enabled and the current thread is not
+     * in a transaction, it is one of the read-only connections, which is chosen without locking the connection.
+     *
+     * @return A database handle that may be read-only
+     */
+    public SQLiteDatabase getReadableDatabase() {
         if (readOnMainThread != AccessThreadConstraint.NONE) {
-            if (Looper.getMainLooper().getThread() == Thread.currentThread()) {
+            if (mainThread == Thread.currentThread()) {
                 if (readOnMainThread == AccessThreadConstraint.FATAL) {
                     throw new DatabaseAccessOnMainThreadException("Reading things must run in background");
                 } else {
@@ -157,18 +260,64 @@ public class OrmaConnection {
                 }
             }
         }
-        if (!migrationCompleted) {
-            onMigrate(db);
-            migrationCompleted = true;
+        SQLiteDatabase[] readers = this.readers;
+        if (readers == null) {
+            readers = openReaders();
         }
-        return db;
+        if (readers.length == 0 || db.inTransaction()) {
+            // reads in a transaction must see its uncommitted changes
+            return db;
+        }
+        return readers[(nextReader.getAndIncrement() & Integer.MAX_VALUE) % readers.length];
+    }
+
+    private synchronized SQLiteDatabase[] openReaders() {
+        migrate();
+        if (readers == null) {
+            int size = (wal && name != null) ? readConnectionPoolSize : 0;
+            SQLiteDatabase[] newReaders = new SQLiteDatabase[size];
+            for (int i = 0; i < size; i++) {
+                newReaders[i] = SQLiteDatabase.openDatabase(db.getPath(), null, SQLiteDatabase.OPEN_READONLY);
+                setForeignKeyConstraintsEnabled(newReaders[i], foreignKeys);
+            }
+            readers = newReaders;
+        }
+        return readers;
+    }
+
+    /**
+     * @return The number of read-only connections in the pool, which is {@code 0} if the pool is disabled
+     */
+    public int getReadConnectionPoolSize() {
+        return openReaders().length;
+    }
+
+    /**
+     * Closes the read-only connections in the pool, the cached statements, and the database.
+     * The connection must not be used after it is closed.
+     */
+    public synchronized void close() {
+        SQLiteDatabase[] readers = this.readers;
+        this.readers = new SQLiteDatabase[0];
+        if (readers != null) {
+            for (SQLiteDatabase reader : readers) {
+                reader.close();
+            }
+        }
+        statementCache.evictAll();
+        db.close();
     }
 
     @NonNull
     public <T> T createModel(Schema<T> schema, ModelFactory<T> factory) {
         T model = factory.call();
         Inserter<T> sth = new Inserter<>(this, schema);
-        long id = sth.execute(model);
+        long id;
+        try {
+            id = sth.execute(model);
+        } finally {
+            sth.close();
+        }
 
         ColumnDef<T, ?> primaryKey = schema.getPrimaryKey();
         String whereClause = primaryKey.getQualifiedName() + " = ?";
@@ -187,16 +336,27 @@ public class OrmaConnection {
     }
 
     public int update(Schema<?> schema, ContentValues values, String whereClause, String[] whereArgs) {
-        SQLiteDatabase db = getWritableDatabase();
-        if (trace) {
-            traceUpdateQuery(schema, values, whereClause, whereArgs);
-        }
-        int count = db.update(schema.getEscapedTableName(), values, whereClause, whereArgs);
-        trigger(DataSetChangedEvent.Type.UPDATE, schema);
-        return count;
+        return update(schema, values, whereClause, (Object[]) whereArgs);
+    }
+
+    public int update(Schema<?> schema, ContentValues values, String whereClause, Object[] whereArgs) {
+        return update(schema, values, whereClause, whereArgs, RowIdSet.ALL);
     }
 
-    private void traceUpdateQuery(Schema<?> schema, ContentValues values, String whereClause, String[] whereArgs) {
+    public int update(Schema<?> schema, ContentValues values, String whereClause, String[] whereArgs,
+            @NonNull RowIdSet changedRowIds) {
+        return update(schema, values, whereClause, (Object[]) whereArgs, changedRowIds);
+    }
+
+    /**
+     * @param changedRowIds A superset of rowids that {@code whereClause} matches, which is passed to observers
+     */
+    public int update(Schema<?> schema, ContentValues values, String whereClause, Object[] whereArgs,
+            @NonNull RowIdSet changedRowIds) {
+        if (values.size() == 0) {
+            throw new IllegalArgumentException("Empty values");
+        }
+
         // copied from SQLiteDatabase#updateWithOnConflict()
         StringBuilder sql = new StringBuilder();
         sql.append("UPDATE ");
@@ -224,20 +384,78 @@ public class OrmaConnection {
             sql.append(whereClause);
         }
 
-        trace(sql.toString(), bindArgs);
+        String sqlString = sql.toString();
+        trace(sqlString, bindArgs);
+        SQLiteStatement statement = acquireStatement(sqlString);
+        try {
+            int count;
+            long startTime = queryStartTime();
+            bindAllArgs(statement, bindArgs);
+            count = statement.executeUpdateDelete();
+            onQuery(QueryEvent.Type.UPDATE, sqlString, bindArgs, startTime, count);
+            trigger(DataSetChangedEvent.Type.UPDATE, schema, changedRowIds);
+            return count;
+        } finally {
+            releaseStatement(sqlString, statement);
+        }
     }
 
     @NonNull
     public Cursor rawQuery(@NonNull String sql, String... bindArgs) {
+        return rawQuery(sql, (Object[]) bindArgs);
+    }
+
+    /**
+     * @param bindArgs Arguments bound in their native types, e.g. {@code Long} by {@code bindLong()}
+     */
+    @NonNull
+    public Cursor rawQuery(@NonNull String sql, @Nullable final Object[] bindArgs) {
         trace(sql, bindArgs);
+        if (queryListener != null) {
+            long startTime = System.nanoTime();
+            Cursor cursor = executeRawQuery(sql, bindArgs);
+            // the rows are not counted because it would fill the cursor window before the cursor is used
+            onQuery(QueryEvent.Type.QUERY, sql, bindArgs, startTime, QueryEvent.UNKNOWN_ROWS);
+            return cursor;
+        }
+        return executeRawQuery(sql, bindArgs);
+    }
+
+    @NonNull
+    private Cursor executeRawQuery(@NonNull String sql, @Nullable final Object[] bindArgs) {
         SQLiteDatabase db = getReadableDatabase();
-        return db.rawQuery(sql, bindArgs);
+        if (bindArgs == null || bindArgs instanceof String[]) {
+            return db.rawQuery(sql, (String[]) bindArgs);
+        }
+        return db.rawQueryWithFactory(new SQLiteDatabase.CursorFactory() {
+            @Override
+            public Cursor newCursor(SQLiteDatabase db, SQLiteCursorDriver driver, String editTable, SQLiteQuery query) {
+                bindAllArgs(query, bindArgs);
+                return new SQLiteCursor(driver, editTable, query);
+            }
+        }, sql, null, null);
     }
 
     public long rawQueryForLong(@NonNull String sql, String... bindArgs) {
+        return rawQueryForLong(sql, (Object[]) bindArgs);
+    }
+
+    /**
+     * @param bindArgs Arguments bound in their native types, e.g. {@code Long} by {@code bindLong()}
+     */
+    public long rawQueryForLong(@NonNull String sql, @Nullable Object[] bindArgs) {
         trace(sql, bindArgs);
         SQLiteDatabase db = getReadableDatabase();
-        return DatabaseUtils.longForQuery(db, sql, bindArgs);
+        SQLiteStatement statement = db.compileStatement(sql);
+        try {
+            long startTime = queryStartTime();
+            bindAllArgs(statement, bindArgs);
+            long value = statement.simpleQueryForLong();
+            onQuery(QueryEvent.Type.QUERY, sql, bindArgs, startTime, 1);
+            return value;
+        } finally {
+            statement.close();
+        }
     }
 
     @NonNull
@@ -253,7 +471,25 @@ public class OrmaConnection {
             String having, String orderBy, long offset) {
         SQLiteCursor cursor = (SQLiteCursor) query(schema, columns, whereClause, whereArgs, groupBy, having, orderBy,
                 offset + ",1");
+        return newSingleModelFromCursor(schema, cursor);
+    }
+
+    @Nullable
+    public <T> T querySingle(Schema<T> schema, String sql, String[] bindArgs) {
+        return querySingle(schema, sql, (Object[]) bindArgs);
+    }
+
+    /**
+     * @param sql      A {@code SELECT} statement with the default result columns of {@code schema}
+     * @param bindArgs Arguments bound in their native types, e.g. {@code Long} by {@code bindLong()}
+     */
+    @Nullable
+    public <T> T querySingle(Schema<T> schema, String sql, Object[] bindArgs) {
+        return newSingleModelFromCursor(schema, rawQuery(sql, bindArgs));
+    }
 
+    @Nullable
+    private <T> T newSingleModelFromCursor(Schema<T> schema, Cursor cursor) {
         try {
             if (cursor.moveToFirst()) {
                 return schema.newModelFromCursor(this, cursor, 0);
@@ -266,33 +502,57 @@ public class OrmaConnection {
     }
 
     public int delete(@NonNull Schema<?> schema, @Nullable String whereClause, @Nullable String[] whereArgs) {
-        SQLiteDatabase db = getWritableDatabase();
+        return delete(schema, whereClause, (Object[]) whereArgs);
+    }
 
+    public int delete(@NonNull Schema<?> schema, @Nullable String whereClause, @Nullable Object[] whereArgs) {
+        return delete(schema, whereClause, whereArgs, RowIdSet.ALL);
+    }
+
+    public int delete(@NonNull Schema<?> schema, @Nullable String whereClause, @Nullable String[] whereArgs,
+            @NonNull RowIdSet changedRowIds) {
+        return delete(schema, whereClause, (Object[]) whereArgs, changedRowIds);
+    }
+
+    /**
+     * @param changedRowIds A superset of rowids that {@code whereClause} matches, which is passed to observers
+     */
+    public int delete(@NonNull Schema<?> schema, @Nullable String whereClause, @Nullable Object[] whereArgs,
+            @NonNull RowIdSet changedRowIds) {
         String sql = "DELETE FROM " + schema.getEscapedTableName()
                 + (!TextUtils.isEmpty(whereClause) ? " WHERE " + whereClause : "");
         trace(sql, whereArgs);
-        SQLiteStatement statement = db.compileStatement(sql);
-        statement.bindAllArgsAsStrings(whereArgs);
+        SQLiteStatement statement = acquireStatement(sql);
         try {
-            int count = statement.executeUpdateDelete();
-            trigger(DataSetChangedEvent.Type.DELETE, schema);
+            int count;
+            long startTime = queryStartTime();
+            bindAllArgs(statement, whereArgs);
+            count = statement.executeUpdateDelete();
+            onQuery(QueryEvent.Type.DELETE, sql, whereArgs, startTime, count);
+            trigger(DataSetChangedEvent.Type.DELETE, schema, changedRowIds);
             return count;
         } finally {
-            statement.close();
+            releaseStatement(sql, statement);
         }
     }
 
     public void transactionNonExclusiveSync(@NonNull Runnable task) {
-        SQLiteDatabase db = getReadableDatabase();
+        SQLiteDatabase db = getWritableDatabase();
         trace("begin transaction (non exclusive)", null);
+        long startTime = queryStartTime();
         db.beginTransactionNonExclusive();
 
+        boolean successful = false;
         try {
             task.run();
             db.setTransactionSuccessful();
+            successful = true;
         } finally {
             db.endTransaction();
             trace("end transaction (non exclusive)", null);
+            onQuery(QueryEvent.Type.TRANSACTION, successful ? "COMMIT" : "ROLLBACK", null, startTime, 0);
+
+            identityMap.endTransaction(successful, !db.inTransaction());
 
             trigger.fireForTransaction();
         }
@@ -302,13 +562,19 @@ public class OrmaConnection {
     public void transactionSync(@NonNull Runnable task) {
         SQLiteDatabase db = getWritableDatabase();
         trace("begin transaction", null);
+        long startTime = queryStartTime();
         db.beginTransaction();
+        boolean successful = false;
         try {
             task.run();
             db.setTransactionSuccessful();
+            successful = true;
         } finally {
             db.endTransaction();
             trace("end transaction", null);
+            onQuery(QueryEvent.Type.TRANSACTION, successful ? "COMMIT" : "ROLLBACK", null, startTime, 0);
+
+            identityMap.endTransaction(successful, !db.inTransaction());
 
             trigger.fireForTransaction();
         }
@@ -333,14 +599,108 @@ public class OrmaConnection {
         return trigger.create(selector);
     }
 
+    /**
+     * @param window The time window to merge events, which overrides the connection's default
+     */
+    @Experimental
+    public <S extends Selector<?, ?>> Observable<DataSetChangedEvent<S>> createEventObservable(S selector, long window,
+            @NonNull TimeUnit unit) {
+        return trigger.create(selector, window, unit);
+    }
+
+    /**
+     * @return The number of data-set changed events merged into other events by coalescing
+     */
+    @Experimental
+    public long getCollapsedEventCount() {
+        return trigger.getCollapsedEventCount();
+    }
+
     public <Model> void trigger(DataSetChangedEvent.Type type, Schema<Model> schema) {
-        trigger.fire(db, type, schema);
+        trigger(type, schema, RowIdSet.ALL);
+    }
+
+    public <Model> void trigger(DataSetChangedEvent.Type type, Schema<Model> schema, @NonNull RowIdSet changedRowIds) {
+        identityMap.invalidate(schema, changedRowIds, db.inTransaction());
+        trigger.fire(db, type, schema, changedRowIds);
     }
 
     public void execSQL(@NonNull String sql, @NonNull Object... bindArgs) {
         trace(sql, bindArgs);
-        SQLiteDatabase db = getWritableDatabase();
-        db.execSQL(sql, bindArgs);
+        long startTime = queryStartTime();
+        if (DatabaseUtils.getSqlStatementType(sql) != DatabaseUtils.STATEMENT_UPDATE) {
+            // DDL, PRAGMA and so on are not worth caching
+            SQLiteDatabase db = getWritableDatabase();
+            db.execSQL(sql, bindArgs);
+            onQuery(QueryEvent.Type.EXEC, sql, bindArgs, startTime, QueryEvent.UNKNOWN_ROWS);
+            return;
+        }
+
+        SQLiteStatement statement = acquireStatement(sql);
+        try {
+            bindAllArgs(statement, bindArgs);
+            statement.execute();
+            onQuery(QueryEvent.Type.EXEC, sql, bindArgs, startTime, QueryEvent.UNKNOWN_ROWS);
+        } finally {
+            releaseStatement(sql, statement);
+        }
+    }
+
+    /**
+     * Takes a statement of {@code sql} from the statement cache, or compiles it.
+     * The caller uses it exclusively, and must return it by {@link #releaseStatement(String, SQLiteStatement)}.
+     *
+     * @param sql An SQL statement to compile
+     * @return A compiled statement
+     */
+    @NonNull
+    public SQLiteStatement acquireStatement(@NonNull String sql) {
+        return statementCache.acquire(getWritableDatabase(), sql);
+    }
+
+    /**
+     * Returns a statement taken by {@link #acquireStatement(String)} to the statement cache.
+     */
+    public void releaseStatement(@NonNull String sql, @NonNull SQLiteStatement statement) {
+        statementCache.release(sql, statement);
+    }
+
+    @NonNull
+    public StatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    @Experimental
+    @NonNull
+    public IdentityMap getIdentityMap() {
+        return identityMap;
+    }
+
+    static void bindAllArgs(@NonNull SQLiteProgram statement, @Nullable Object[] bindArgs) {
+        statement.clearBindings();
+        if (bindArgs == null) {
+            return;
+        }
+        for (int i = 0; i < bindArgs.length; i++) {
+            bindArg(statement, i + 1, bindArgs[i]);
+        }
+    }
+
+    // see DatabaseUtils#bindObjectToProgram()
+    static void bindArg(@NonNull SQLiteProgram statement, int index, @Nullable Object value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else if (value instanceof Double || value instanceof Float) {
+            statement.bindDouble(index, ((Number) value).doubleValue());
+        } else if (value instanceof Number) {
+            statement.bindLong(index, ((Number) value).longValue());
+        } else if (value instanceof Boolean) {
+            statement.bindLong(index, (Boolean) value ? 1 : 0);
+        } else if (value instanceof byte[]) {
+            statement.bindBlob(index, (byte[]) value);
+        } else {
+            statement.bindString(index, value.toString());
+        }
     }
 
     protected void checkSchemas(List<Schema<?>> schemas) {
@@ -353,7 +713,23 @@ public class OrmaConnection {
 
     protected void execSQL(@NonNull SQLiteDatabase db, @NonNull String sql) {
         trace(sql, null);
+        long startTime = queryStartTime();
         db.execSQL(sql);
+        onQuery(QueryEvent.Type.EXEC, sql, null, startTime, QueryEvent.UNKNOWN_ROWS);
+    }
+
+    /**
+     * @return {@link System#nanoTime()} if a {@link QueryListener} is set, or {@code 0} not to spend time on it
+     */
+    long queryStartTime() {
+        return queryListener != null ? System.nanoTime() : 0;
+    }
+
+    void onQuery(@NonNull QueryEvent.Type type, @NonNull String sql, @Nullable Object[] bindArgs, long startTime,
+            long rows) {
+        if (queryListener != null) {
+            queryListener.onQuery(new QueryEvent(type, sql, bindArgs, System.nanoTime() - startTime, rows));
+        }
     }
 
     protected void trace(@NonNull String sql, @Nullable Object[] bindArgs) {
@@ -15,6 +15,7 @@
  */
 package com.github.gfx.android.orma;
 
+import com.github.gfx.android.orma.annotation.Experimental;
 import com.github.gfx.android.orma.migration.ManualStepMigration;
 import com.github.gfx.android.orma.migration.MigrationEngine;
 import com.github.gfx.android.orma.migration.OrmaMigration;
@@ -27,6 +28,8 @@ import android.support.annotation.IntRange;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * This class represents Orma options, and it is the base class of {@code OrmaDatabase.Builder}.
  */
@@ -59,6 +62,17 @@ public abstract class OrmaDatabaseBuilderBase<T extends OrmaDatabaseBuilderBase<
 
     AccessThreadConstraint writeOnMainThread;
 
+    int statementCacheSize = StatementCache.DEFAULT_MAX_SIZE;
+
+    long eventCoalescingWindowMillis = 0;
+
+    int readConnectionPoolSize = 0;
+
+    int identityMapSize = 0;
+
+    @Nullable
+    QueryListener queryListener;
+
     public OrmaDatabaseBuilderBase(@NonNull Context context) {
         this.context = context.getApplicationContext();
         this.debug = extractDebuggable(context);
@@ -207,6 +221,19 @@ public abstract class OrmaDatabaseBuilderBase<T extends OrmaDatabaseBuilderBase<
         return (T) this;
     }
 
+    /**
+     * Sets a listener to receive each statement executed with its elapsed time, e.g. to collect latency metrics.
+     * There is no overhead if it is not set.
+     *
+     * @param queryListener A listener, or {@code null} to disable it
+     * @return the receiver itself
+     */
+    @Experimental
+    public T queryListener(@Nullable QueryListener queryListener) {
+        this.queryListener = queryListener;
+        return (T) this;
+    }
+
     /**
      * Sets {@link AccessThreadConstraint} for reading.
      *
@@ -229,6 +256,63 @@ public abstract class OrmaDatabaseBuilderBase<T extends OrmaDatabaseBuilderBase<
         return (T) this;
     }
 
+    /**
+     * Sets the max number of compiled statements cached in the connection. The default is
+     * {@link StatementCache#DEFAULT_MAX_SIZE}, and {@code 0} disables the cache.
+     *
+     * @param statementCacheSize The max number of statements to cache
+     * @return the receiver itself
+     */
+    public T statementCacheSize(@IntRange(from = 0) int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+        return (T) this;
+    }
+
+    /**
+     * Merges data-set changed events for each observer within {@code window}, so a burst of writes causes a single
+     * re-query in {@code createQueryObservable()}. The merged events are emitted in the computation scheduler of RxJava,
+     * while events without coalescing are emitted synchronously in the thread that writes the changes.
+     * The default is {@code 0} that disables coalescing.
+     *
+     * @param window The time to wait for more events after the first one
+     * @param unit   The unit of {@code window}
+     * @return the receiver itself
+     */
+    public T eventCoalescingWindow(@IntRange(from = 0) long window, @NonNull TimeUnit unit) {
+        this.eventCoalescingWindowMillis = unit.toMillis(window);
+        return (T) this;
+    }
+
+    /**
+     * Opens read-only connections that serve queries outside transactions, so readers in different threads
+     * neither wait for each other nor for the writer. Writes and transactions keep using the single writer connection.
+     * It is effective only if WAL is enabled and the database is not in-memory.
+     * The connections are closed by {@link OrmaConnection#close()}.
+     * The default is {@code 0} that disables the pool.
+     *
+     * @param readConnectionPoolSize The number of read-only connections
+     * @return the receiver itself
+     * @see #writeAheadLogging(boolean)
+     */
+    public T readConnectionPoolSize(@IntRange(from = 0) int readConnectionPoolSize) {
+        this.readConnectionPoolSize = readConnectionPoolSize;
+        return (T) this;
+    }
+
+    /**
+     * Caches models loaded by {@link SingleAssociation}, keyed by their primary keys, so that children referring to
+     * the same parent share the instance without querying it again. Cached models are invalidated when their tables
+     * are changed by Orma. The default is {@code 0} that disables the cache.
+     *
+     * @param identityMapSize The max number of models to cache
+     * @return the receiver itself
+     */
+    @Experimental
+    public T identityMapSize(@IntRange(from = 0) int identityMapSize) {
+        this.identityMapSize = identityMapSize;
+        return (T) this;
+    }
+
     @NonNull
     protected abstract String getSchemaHash();
 
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma;
+
+import com.github.gfx.android.orma.annotation.Experimental;
+
+import android.database.Cursor;
+import android.support.annotation.CheckResult;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.ObservableOnSubscribe;
+
+/**
+ * A query that selects only some columns of a {@link Selector}, created by {@link Selector#select(ColumnDef[])}.
+ * It yields {@link Tuple}s instead of models, and omits {@code JOIN} clauses of direct associations
+ * unless the columns or the conditions refer to them.
+ *
+ * @param <Model> The model that the columns belong to
+ */
+@Experimental
+public class Projection<Model> {
+
+    final OrmaConnection conn;
+
+    final Selector<Model, ?> selector;
+
+    final ColumnDef<Model, ?>[] columns;
+
+    Projection(@NonNull OrmaConnection conn, @NonNull Selector<Model, ?> selector,
+            @NonNull ColumnDef<Model, ?>[] columns) {
+        if (columns.length == 0) {
+            throw new IllegalArgumentException("No columns to select");
+        }
+        this.conn = conn;
+        this.selector = selector;
+        this.columns = columns;
+    }
+
+    /**
+     * @return A {@code SELECT} statement with the projected columns
+     */
+    @NonNull
+    public String buildQuery() {
+        return selector.buildProjectionQuery(columns);
+    }
+
+    @CheckResult
+    @NonNull
+    public Cursor execute() {
+        return selector.executeProjection(columns);
+    }
+
+    @NonNull
+    public List<Tuple<Model>> toList() {
+        Cursor cursor = execute();
+        try {
+            List<Tuple<Model>> list = new ArrayList<>(cursor.getCount());
+            for (int pos = 0; cursor.moveToPosition(pos); pos++) {
+                list.add(newTupleFromCursor(cursor));
+            }
+            return list;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @NonNull
+    public Observable<Tuple<Model>> executeAsObservable() {
+        return Observable.create(new ObservableOnSubscribe<Tuple<Model>>() {
+            @Override
+            public void subscribe(ObservableEmitter<Tuple<Model>> emitter) throws Exception {
+                Cursor cursor = execute();
+                try {
+                    for (int pos = 0; !emitter.isDisposed() && cursor.moveToPosition(pos); pos++) {
+                        emitter.onNext(newTupleFromCursor(cursor));
+                    }
+                } finally {
+                    cursor.close();
+                }
+                emitter.onComplete();
+            }
+        });
+    }
+
+    @NonNull
+    public Tuple<Model> newTupleFromCursor(@NonNull Cursor cursor) {
+        Object[] values = new Object[columns.length];
+        int index = 0;
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = columns[i].getFromCursor(conn, cursor, index);
+            index++;
+            if (columns[i] instanceof AssociationDef) {
+                index += ((AssociationDef<?, ?, ?>) columns[i]).associationSchema.getDefaultResultColumns().length;
+            }
+        }
+        return new Tuple<>(columns, values);
+    }
+}
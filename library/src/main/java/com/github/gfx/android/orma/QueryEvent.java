@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma;
+
+import com.github.gfx.android.orma.annotation.Experimental;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * A statement executed by {@link OrmaConnection}, passed to {@link QueryListener}.
+ */
+@Experimental
+public class QueryEvent {
+
+    public enum Type {
+        QUERY,
+        INSERT,
+        UPDATE,
+        DELETE,
+        TRANSACTION,
+        EXEC,
+    }
+
+    /**
+     * The value of {@link #getRows()} if the number of rows is not known
+     */
+    public static final long UNKNOWN_ROWS = -1;
+
+    final Type type;
+
+    final String sql;
+
+    @Nullable
+    Object[] bindArgs;
+
+    final long elapsedNanos;
+
+    final long rows;
+
+    final Thread thread;
+
+    public QueryEvent(@NonNull Type type, @NonNull String sql, @Nullable Object[] bindArgs, long elapsedNanos,
+            long rows) {
+        this.type = type;
+        this.sql = sql;
+        this.bindArgs = bindArgs;
+        this.elapsedNanos = elapsedNanos;
+        this.rows = rows;
+        this.thread = Thread.currentThread();
+    }
+
+    /**
+     * Creates an event whose bind arguments are built by {@link #loadBindArgs()} on demand.
+     */
+    protected QueryEvent(@NonNull Type type, @NonNull String sql, long elapsedNanos, long rows) {
+        this(type, sql, null, elapsedNanos, rows);
+    }
+
+    @NonNull
+    public Type getType() {
+        return type;
+    }
+
+    @NonNull
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return The arguments bound to the statement, which may be built from the models on the first call,
+     * so call it in {@link QueryListener#onQuery(QueryEvent)}
+     */
+    @Nullable
+    public Object[] getBindArgs() {
+        if (bindArgs == null) {
+            bindArgs = loadBindArgs();
+        }
+        return bindArgs;
+    }
+
+    @Nullable
+    protected Object[] loadBindArgs() {
+        return null;
+    }
+
+    /**
+     * @return The time to execute the statement in nanoseconds, or the time from its beginning to its end
+     * for a transaction
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return The number of rows returned or affected, or {@link #UNKNOWN_ROWS}
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return The thread that executed the statement
+     */
+    @NonNull
+    public Thread getThread() {
+        return thread;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryEvent{" +
+                "type=" + type +
+                ", sql='" + sql + '\'' +
+                ", elapsedNanos=" + elapsedNanos +
+                ", rows=" + rows +
+                ", thread=" + thread.getName() +
+                '}';
+    }
+}
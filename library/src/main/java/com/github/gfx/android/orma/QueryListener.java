@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma;
+
+import com.github.gfx.android.orma.annotation.Experimental;
+
+import android.support.annotation.NonNull;
+
+/**
+ * A listener to instrument statements executed by {@link OrmaConnection}, set by
+ * {@link OrmaDatabaseBuilderBase#queryListener(QueryListener)}. If no listener is set, the connection
+ * neither measures time nor creates events.
+ * <p>
+ * Note that a {@code SELECT} statement that returns a cursor is reported when the cursor is created: the rows are
+ * read lazily as the cursor is used, so the elapsed time does not include reading them and the number of rows is
+ * {@link QueryEvent#UNKNOWN_ROWS}.
+ */
+@Experimental
+public interface QueryListener {
+
+    /**
+     * Called right after a statement is executed, in the thread that executed it.
+     * It should return quickly because it blocks the thread, possibly in a transaction.
+     * <p>
+     * {@link QueryEvent#getBindArgs()} must be called in this method if needed, because the arguments of
+     * {@code INSERT} and {@code UPDATE} statements are built on demand from the models, which may be modified
+     * after this method returns. Keep the result of it instead of the event.
+     *
+     * @param event The statement executed
+     */
+    void onQuery(@NonNull QueryEvent event);
+}
@@ -29,8 +29,10 @@ import android.support.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import io.reactivex.Flowable;
 import io.reactivex.Maybe;
 import io.reactivex.MaybeEmitter;
 import io.reactivex.MaybeOnSubscribe;
@@ -49,6 +51,8 @@ public abstract class Relation<Model, R extends Relation<Model, ?>> extends Orma
 
     final protected ArrayList<OrderSpec<Model>> orderSpecs = new ArrayList<>();
 
+    final protected ArrayList<ColumnDef<Model, ? extends SingleAssociation<?>>> prefetchedColumns = new ArrayList<>();
+
     public Relation(@NonNull OrmaConnection connection) {
         super(connection);
     }
@@ -56,6 +60,7 @@ public abstract class Relation<Model, R extends Relation<Model, ?>> extends Orma
     public Relation(@NonNull Relation<Model, ?> relation) {
         super(relation);
         orderSpecs.addAll(relation.orderSpecs);
+        prefetchedColumns.addAll(relation.prefetchedColumns);
     }
 
     @SuppressWarnings("unchecked")
@@ -64,6 +69,15 @@ public abstract class Relation<Model, R extends Relation<Model, ?>> extends Orma
         return (R) this;
     }
 
+    /**
+     * @see Selector#prefetch(ColumnDef)
+     */
+    @SuppressWarnings("unchecked")
+    public R prefetch(@NonNull ColumnDef<Model, ? extends SingleAssociation<?>> column) {
+        prefetchedColumns.add(column);
+        return (R) this;
+    }
+
     @Nullable
     protected String buildOrderingTerms() {
         if (orderSpecs.isEmpty()) {
@@ -104,6 +118,17 @@ public abstract class Relation<Model, R extends Relation<Model, ?>> extends Orma
         }
     }
 
+    /**
+     * @see Selector#select(ColumnDef[])
+     */
+    @Experimental
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    @NonNull
+    public final Projection<Model> select(@NonNull ColumnDef<Model, ?>... columns) {
+        return selector().select(columns);
+    }
+
     @CheckResult
     @NonNull
     public Single<Model> getAsSingle(@IntRange(from = 0) final int position) {
@@ -189,7 +214,7 @@ public abstract class Relation<Model, R extends Relation<Model, ?>> extends Orma
                 Selector<Model, ?> subquery = selector();
                 subquery.limit(Integer.MAX_VALUE);
                 subquery.offset(size);
-                return conn.delete(getSchema(), pk + " IN (" + subquery.buildQueryWithColumns(pk) + ")", getBindArgs());
+                return conn.delete(getSchema(), pk + " IN (" + subquery.buildQueryWithColumns(pk) + ")", getTypedBindArgs());
             }
         });
     }
@@ -256,22 +281,57 @@ public abstract class Relation<Model, R extends Relation<Model, ?>> extends Orma
         return inserter(OnConflict.REPLACE, false);
     }
 
+    /**
+     * Unlike {@link #upserter()}, which is {@code INSERT OR REPLACE}, it updates the existing rows instead of
+     * deleting and inserting them. Rows are matched only by the primary key, so conflicts in {@code UNIQUE} columns
+     * are not resolved.
+     *
+     * @return An {@code Upserter} instance to insert rows or update them.
+     * @see Upserter
+     */
+    @Experimental
+    @NonNull
+    public Upserter<Model> mergingUpserter() {
+        return new Upserter<>(conn, getSchema());
+    }
+
     /**
      * Experimental API to observe data-set changed events.
+     * Selectors are emitted synchronously in the thread that writes the changes unless events are coalesced.
      *
      * @param <S> A concrete {@link Selector} class.
      * @return A hot observable that yields {@link Selector} when the target data-set is changed.
+     * @see OrmaDatabaseBuilderBase#eventCoalescingWindow(long, TimeUnit)
      */
     @Experimental
     @SuppressWarnings("unchecked")
     public <S extends Selector<Model, ?>> Observable<S> createQueryObservable() {
-        return conn.createEventObservable((S)selector())
-                .map(new Function<DataSetChangedEvent<S>, S>() {
-                    @Override
-                    public S apply(DataSetChangedEvent<S> event) throws Exception {
-                        return event.getSelector();
-                    }
-                });
+        return this.<S>mapToSelector(conn.createEventObservable((S) selector()));
+    }
+
+    /**
+     * Experimental API to observe data-set changed events, merging events within {@code window} into one.
+     * The merged events are emitted in the computation scheduler of RxJava.
+     *
+     * @param window The time to wait for more events after the first one
+     * @param unit   The unit of {@code window}
+     * @param <S>    A concrete {@link Selector} class.
+     * @return A hot observable that yields {@link Selector} when the target data-set is changed.
+     * @see OrmaDatabaseBuilderBase#eventCoalescingWindow(long, TimeUnit)
+     */
+    @Experimental
+    @SuppressWarnings("unchecked")
+    public <S extends Selector<Model, ?>> Observable<S> createQueryObservable(long window, @NonNull TimeUnit unit) {
+        return this.<S>mapToSelector(conn.createEventObservable((S) selector(), window, unit));
+    }
+
+    private <S extends Selector<Model, ?>> Observable<S> mapToSelector(Observable<DataSetChangedEvent<S>> events) {
+        return events.map(new Function<DataSetChangedEvent<S>, S>() {
+            @Override
+            public S apply(DataSetChangedEvent<S> event) throws Exception {
+                return event.getSelector();
+            }
+        });
     }
 
     /**
@@ -288,6 +348,24 @@ public abstract class Relation<Model, R extends Relation<Model, ?>> extends Orma
         return conn.createEventObservable((S)selector());
     }
 
+    /**
+     * @see Selector#executeAsFlowable()
+     */
+    @CheckResult
+    @NonNull
+    public Flowable<Model> executeAsFlowable() {
+        return selector().executeAsFlowable();
+    }
+
+    /**
+     * @see Selector#executeAsFlowable(int)
+     */
+    @CheckResult
+    @NonNull
+    public Flowable<Model> executeAsFlowable(@IntRange(from = 1) int windowSize) {
+        return selector().executeAsFlowable(windowSize);
+    }
+
     // Iterator<Model>
 
     @Override
@@ -52,6 +52,12 @@ public interface Schema<Model> extends MigrationSchema {
     @NonNull
     String getSelectFromTableClause();
 
+    /**
+     * @return A {@code SELECT ... FROM ...} clause with {@link #getDefaultResultColumns()}, built once per schema instance.
+     */
+    @NonNull
+    String getDefaultSelectFromClause();
+
     @NonNull
     ColumnDef<Model, ?> getPrimaryKey();
 
@@ -88,6 +94,30 @@ public interface Schema<Model> extends MigrationSchema {
     void bindArgs(@NonNull OrmaConnection conn, @NonNull SQLiteStatement statement, @NonNull Model model,
             boolean withoutAutoId);
 
+    /**
+     * Binds columns of a model to a statement that inserts multiple rows.
+     *
+     * @param offset The number of bind parameters before {@code model}'s, i.e. {@code statement}'s
+     *               parameters from {@code offset + 1} are bound
+     * @see #bindArgs(OrmaConnection, SQLiteStatement, Object, boolean)
+     */
+    void bindArgs(@NonNull OrmaConnection conn, @NonNull SQLiteStatement statement, @NonNull Model model,
+            boolean withoutAutoId, int offset);
+
     @NonNull
     Model newModelFromCursor(@NonNull OrmaConnection conn, @NonNull Cursor cursor, int offset);
+
+    /**
+     * Overwrites all the columns of {@code model} with a row of {@code cursor}, as {@link #newModelFromCursor} reads.
+     *
+     * @throws UnsupportedOperationException if the model is created by a {@code @Setter} constructor
+     * @see #isPopulatableFromCursor()
+     */
+    void populateFromCursor(@NonNull OrmaConnection conn, @NonNull Model model, @NonNull Cursor cursor, int offset);
+
+    /**
+     * @return {@code true} if {@link #populateFromCursor} is supported, i.e. the model is not created by a
+     * {@code @Setter} constructor
+     */
+    boolean isPopulatableFromCursor();
 }
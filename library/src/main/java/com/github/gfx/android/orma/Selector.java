@@ -16,8 +16,10 @@
 
 package com.github.gfx.android.orma;
 
+import com.github.gfx.android.orma.annotation.Experimental;
 import com.github.gfx.android.orma.exception.InvalidStatementException;
 import com.github.gfx.android.orma.exception.NoValueException;
+import com.github.gfx.android.orma.function.Consumer1;
 import com.github.gfx.android.orma.internal.OrmaConditionBase;
 import com.github.gfx.android.orma.internal.OrmaIterator;
 
@@ -29,16 +31,21 @@ import android.support.annotation.IntRange;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.RestrictTo;
+import android.text.TextUtils;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Callable;
 
+import io.reactivex.Emitter;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import io.reactivex.ObservableEmitter;
 import io.reactivex.ObservableOnSubscribe;
 import io.reactivex.Single;
+import io.reactivex.functions.BiConsumer;
 
 @SuppressLint("Assert")
 public abstract class Selector<Model, S extends Selector<Model, ?>>
@@ -55,12 +62,32 @@ public abstract class Selector<Model, S extends Selector<Model, ?>>
     @Nullable
     protected String orderBy;
 
+    /**
+     * {@code orderBy} as {@link OrderSpec}s, which is incomplete if {@code orderedByRawTerms} is {@code true}.
+     */
+    protected final ArrayList<OrderSpec<Model>> orderSpecs = new ArrayList<>();
+
+    protected boolean orderedByRawTerms = false;
+
+    protected final ArrayList<ColumnDef<Model, ? extends SingleAssociation<?>>> prefetchedColumns = new ArrayList<>();
+
     protected long limit = -1;
 
     protected long offset = -1;
 
     protected long page = -1;
 
+    // memoized SQL, which is reset by invalidateQuery() or invalidateLimitClause()
+
+    @Nullable
+    private String baseQuery; // without the LIMIT clause
+
+    @Nullable
+    private String query;
+
+    @Nullable
+    private String countQuery;
+
     public Selector(@NonNull OrmaConnection conn) {
         super(conn);
     }
@@ -68,6 +95,8 @@ public abstract class Selector<Model, S extends Selector<Model, ?>>
     public Selector(@NonNull Relation<Model, ?> relation) {
         super(relation);
         orderBy = relation.buildOrderingTerms();
+        orderSpecs.addAll(relation.orderSpecs);
+        prefetchedColumns.addAll(relation.prefetchedColumns);
     }
 
 
@@ -76,22 +105,52 @@ public abstract class Selector<Model, S extends Selector<Model, ?>>
         groupBy = selector.groupBy;
         having = selector.having;
         orderBy = selector.orderBy;
+        orderSpecs.addAll(selector.orderSpecs);
+        orderedByRawTerms = selector.orderedByRawTerms;
+        prefetchedColumns.addAll(selector.prefetchedColumns);
         limit = selector.limit;
         offset = selector.offset;
         page = selector.page;
+        baseQuery = selector.baseQuery;
+        query = selector.query;
+        countQuery = selector.countQuery;
     }
 
     @Override
     public abstract S clone();
 
+    /**
+     * Discards the memoized SQL. Subclasses must call it when they modify the clauses directly.
+     */
+    protected void invalidateQuery() {
+        baseQuery = null;
+        query = null;
+        countQuery = null;
+    }
+
+    private void invalidateLimitClause() {
+        query = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public S where(@NonNull CharSequence conditions, @NonNull Object... args) {
+        invalidateQuery();
+        return super.where(conditions, args);
+    }
+
     @SuppressWarnings("unchecked")
     public S groupBy(@NonNull String groupBy) {
+        invalidateQuery();
         this.groupBy = groupBy;
         return (S) this;
     }
 
     @SuppressWarnings("unchecked")
     public S having(@NonNull String having, @NonNull Object... args) {
+        invalidateQuery();
         this.having = having;
         appendBindArgs(args);
         return (S) this;
@@ -99,39 +158,86 @@ public abstract class Selector<Model, S extends Selector<Model, ?>>
 
     @SuppressWarnings("unchecked")
     public S orderBy(@NonNull CharSequence orderByTerm) {
+        orderedByRawTerms = true;
+        appendOrderingTerm(orderByTerm);
+        return (S) this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public S orderBy(@NonNull OrderSpec<Model> orderSpec) {
+        orderSpecs.add(orderSpec);
+        appendOrderingTerm(orderSpec.toString());
+        return (S) this;
+    }
+
+    private void appendOrderingTerm(@NonNull CharSequence orderByTerm) {
+        invalidateQuery();
         if (orderBy == null) {
             orderBy = orderByTerm.toString();
         } else {
             orderBy += ", " + orderByTerm;
         }
-        return (S) this;
     }
 
-    @SuppressWarnings("unchecked")
-    public S orderBy(@NonNull OrderSpec<Model> orderSpec) {
-        return orderBy(orderSpec.toString());
+    /**
+     * Makes the ordering total for keyset pagination, appending the primary key to the ordering terms if needed.
+     *
+     * @return Ordering keys that identify a row, or {@code null} if the ordering cannot be expressed by non-null columns
+     */
+    @RestrictTo(RestrictTo.Scope.GROUP_ID)
+    @Nullable
+    public List<OrderSpec<Model>> orderByUniqueKeys() {
+        if (orderedByRawTerms || groupBy != null || having != null) {
+            return null;
+        }
+
+        ColumnDef<Model, ?> primaryKey = getSchema().getPrimaryKey();
+        if (orderSpecs.isEmpty() && !"INTEGER".equals(primaryKey.storageType)) {
+            return null; // ordering by a non-rowid key changes the natural order
+        }
+
+        List<OrderSpec<Model>> keys = new ArrayList<>(orderSpecs.size() + 1);
+        for (OrderSpec<Model> orderSpec : orderSpecs) {
+            ColumnDef<Model, ?> column = orderSpec.column;
+            if (column.isNullable() || "BLOB".equals(column.storageType)
+                    || column.schema.getModelClass() != getSchema().getModelClass()) {
+                return null;
+            }
+            keys.add(orderSpec);
+            if (column.isPrimaryKey()) {
+                return keys;
+            }
+        }
+        OrderSpec<Model> primaryKeyOrder = primaryKey.orderInAscending();
+        orderBy(primaryKeyOrder);
+        keys.add(primaryKeyOrder);
+        return keys;
     }
 
     @SuppressWarnings("unchecked")
     public S limit(@IntRange(from = 1, to = Integer.MAX_VALUE) long limit) {
+        invalidateLimitClause();
         this.limit = limit;
         return (S) this;
     }
 
     @SuppressWarnings("unchecked")
     public S offset(@IntRange(from = 0) long offset) {
+        invalidateLimitClause();
         this.offset = offset;
         return (S) this;
     }
 
     @SuppressWarnings("unchecked")
     public S page(@IntRange(from = 1) long page) {
+        invalidateLimitClause();
         this.page = page;
         return (S) this;
     }
 
     @SuppressWarnings("unchecked")
     public S per(@IntRange(from = 1, to = Integer.MAX_VALUE) long per) {
+        invalidateLimitClause();
         this.limit = per;
         return (S) this;
     }
@@ -162,6 +268,7 @@ public abstract class Selector<Model, S extends Selector<Model, ?>>
     @RestrictTo(RestrictTo.Scope.GROUP_ID)
     @SuppressWarnings("unchecked")
     public S resetLimitClause() {
+        invalidateLimitClause();
         limit = -1;
         offset = -1;
         page = -1;
@@ -197,9 +304,12 @@ public abstract class Selector<Model, S extends Selector<Model, ?>>
 
     @IntRange(from = 0)
     public int count() {
-        String sql = SQLiteQueryBuilder.buildQueryString(
-                false, getSchema().getSelectFromTableClause(), countSelections, getWhereClause(), groupBy, null, null, null);
-        return (int) conn.rawQueryForLong(sql, getBindArgs());
+        if (countQuery == null) {
+            countQuery = SQLiteQueryBuilder.buildQueryString(
+                    false, getSchema().getSelectFromTableClause(), countSelections, getWhereClause(), groupBy, null, null,
+                    null);
+        }
+        return (int) conn.rawQueryForLong(countQuery, getTypedBindArgs());
     }
 
     @CheckResult
@@ -233,8 +343,7 @@ public abstract class Selector<Model, S extends Selector<Model, ?>>
 
     @Nullable
     public Model getOrNull(@IntRange(from = 0) long position) {
-        return conn.querySingle(getSchema(), getSchema().getDefaultResultColumns(),
-                getWhereClause(), getBindArgs(), groupBy, having, orderBy, position);
+        return conn.querySingle(getSchema(), buildBaseQuery() + " LIMIT " + position + ",1", getTypedBindArgs());
     }
 
     @NonNull
@@ -279,16 +388,87 @@ public abstract class Selector<Model, S extends Selector<Model, ?>>
         });
     }
 
+    /**
+     * Loads the values of {@code column} without boxing. Unlike {@link #pluck(ColumnDef)}, this reads the stored values
+     * as they are, so {@code NULL} is {@code 0} and columns with type adapters yield their serialized values.
+     *
+     * @param column A column with an integer storage type, e.g. {@code Todo_Schema.INSTANCE.id}
+     * @return The values in the order of the selector
+     */
+    @NonNull
+    public long[] pluckLongs(@NonNull ColumnDef<Model, ?> column) {
+        Cursor cursor = executeWithColumns(column.getQualifiedName());
+        try {
+            long[] values = new long[cursor.getCount()];
+            for (int pos = 0; cursor.moveToPosition(pos); pos++) {
+                values[pos] = cursor.getLong(0);
+            }
+            return values;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * @see #pluckLongs(ColumnDef)
+     */
+    @NonNull
+    public int[] pluckInts(@NonNull ColumnDef<Model, ?> column) {
+        Cursor cursor = executeWithColumns(column.getQualifiedName());
+        try {
+            int[] values = new int[cursor.getCount()];
+            for (int pos = 0; cursor.moveToPosition(pos); pos++) {
+                values[pos] = cursor.getInt(0);
+            }
+            return values;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * @see #pluckLongs(ColumnDef)
+     */
+    @NonNull
+    public double[] pluckDoubles(@NonNull ColumnDef<Model, ?> column) {
+        Cursor cursor = executeWithColumns(column.getQualifiedName());
+        try {
+            double[] values = new double[cursor.getCount()];
+            for (int pos = 0; cursor.moveToPosition(pos); pos++) {
+                values[pos] = cursor.getDouble(0);
+            }
+            return values;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Creates a query that selects only {@code columns}, e.g. {@code selectFromTodo().select(title, createdTime)}.
+     * {@code JOIN} clauses of direct associations are omitted unless {@code columns} include associations
+     * or the conditions refer to columns of associated tables by their qualified names.
+     *
+     * @param columns Columns to select, which the resulting {@link Tuple}s have in the same order
+     * @return A projection of a copy of the selector
+     */
+    @Experimental
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    @NonNull
+    public final Projection<Model> select(@NonNull ColumnDef<Model, ?>... columns) {
+        return new Projection<Model>(conn, clone(), columns);
+    }
+
     @CheckResult
     @NonNull
     public Cursor execute() {
-        return conn.rawQuery(buildQuery(), getBindArgs());
+        return conn.rawQuery(buildQuery(), getTypedBindArgs());
     }
 
     @CheckResult
     @NonNull
     public Cursor executeWithColumns(@NonNull String... columns) {
-        return conn.rawQuery(buildQueryWithColumns(columns), getBindArgs());
+        return conn.rawQuery(buildQueryWithColumns(columns), getTypedBindArgs());
     }
 
     /**
@@ -296,7 +476,38 @@ public abstract class Selector<Model, S extends Selector<Model, ?>>
      */
     @NonNull
     public String buildQuery() {
-        return buildQueryWithColumns(getSchema().getDefaultResultColumns());
+        if (query == null) {
+            String limitClause = getLimitClause();
+            query = limitClause != null ? buildBaseQuery() + " LIMIT " + limitClause : buildBaseQuery();
+        }
+        return query;
+    }
+
+    /**
+     * @return A {@code SELECT} statement with the default result columns but without {@code LIMIT}
+     */
+    @NonNull
+    private String buildBaseQuery() {
+        if (baseQuery == null) {
+            if (TextUtils.isEmpty(groupBy) && !TextUtils.isEmpty(having)) {
+                throw new IllegalArgumentException("HAVING clauses are only permitted when using a groupBy clause");
+            }
+
+            StringBuilder sql = new StringBuilder(getSchema().getDefaultSelectFromClause());
+            appendClause(sql, " WHERE ", getWhereClause());
+            appendClause(sql, " GROUP BY ", groupBy);
+            appendClause(sql, " HAVING ", having);
+            appendClause(sql, " ORDER BY ", orderBy);
+            baseQuery = sql.toString();
+        }
+        return baseQuery;
+    }
+
+    private static void appendClause(StringBuilder sql, String name, String clause) {
+        if (!TextUtils.isEmpty(clause)) {
+            sql.append(name);
+            sql.append(clause);
+        }
     }
 
     /**
@@ -310,6 +521,82 @@ public abstract class Selector<Model, S extends Selector<Model, ?>>
                 getWhereClause(), groupBy, having, orderBy, getLimitClause());
     }
 
+    @NonNull
+    String buildProjectionQuery(@NonNull ColumnDef<Model, ?>[] columns) {
+        List<String> resultColumns = new ArrayList<>(columns.length);
+        boolean needsJoins = false;
+        for (ColumnDef<Model, ?> column : columns) {
+            resultColumns.add(column.getQualifiedName());
+            if (column instanceof AssociationDef) {
+                // a direct association is built from the columns of the joined table
+                Collections.addAll(resultColumns, ((AssociationDef<?, ?, ?>) column).associationSchema.getDefaultResultColumns());
+                needsJoins = true;
+            }
+        }
+        String from = getSchema().getSelectFromTableClause();
+        if (!needsJoins && from.contains(JOIN_KEYWORD) && !referencesJoinedTables(from)) {
+            String alias = getSchema().getEscapedTableAlias();
+            from = alias != null ? getSchema().getEscapedTableName() + " AS " + alias : getSchema().getEscapedTableName();
+        }
+        return SQLiteQueryBuilder.buildQueryString(
+                false, from, resultColumns.toArray(new String[resultColumns.size()]),
+                getWhereClause(), groupBy, having, orderBy, getLimitClause());
+    }
+
+    @NonNull
+    Cursor executeProjection(@NonNull ColumnDef<Model, ?>[] columns) {
+        return conn.rawQuery(buildProjectionQuery(columns), getTypedBindArgs());
+    }
+
+    private static final String JOIN_KEYWORD = " LEFT OUTER JOIN ";
+
+    private boolean referencesJoinedTables(@NonNull String from) {
+        String clauses = getWhereClause() + ' ' + groupBy + ' ' + having + ' ' + orderBy;
+        int pos = 0;
+        while ((pos = from.indexOf(JOIN_KEYWORD, pos)) != -1) {
+            int aliasStart = from.indexOf(" AS ", pos) + " AS ".length();
+            int aliasEnd = from.indexOf(' ', aliasStart);
+            if (clauses.contains(from.substring(aliasStart, aliasEnd) + '.')) {
+                return true;
+            }
+            pos = aliasEnd;
+        }
+        return false;
+    }
+
+    /**
+     * Loads the models referred by {@code column} together with the models of the selector, so that their
+     * {@link SingleAssociation#get()} returns without a query for each. The referred models are loaded by one query
+     * for each list or batch of models, i.e. in {@link #toList()}, {@link #iterator()} and
+     * {@link #executeAsFlowable()}.
+     *
+     * @param column A column of {@link SingleAssociation}, e.g. {@code Item_Schema.INSTANCE.category}
+     * @return the receiver itself
+     */
+    @SuppressWarnings("unchecked")
+    public S prefetch(@NonNull ColumnDef<Model, ? extends SingleAssociation<?>> column) {
+        prefetchedColumns.add(column);
+        return (S) this;
+    }
+
+    /**
+     * Resolves associations specified by {@link #prefetch(ColumnDef)} for {@code models} loaded by the selector.
+     */
+    @RestrictTo(RestrictTo.Scope.GROUP_ID)
+    @SuppressWarnings("unchecked")
+    public void prefetchAssociations(@NonNull List<Model> models) {
+        for (ColumnDef<Model, ? extends SingleAssociation<?>> column : prefetchedColumns) {
+            List<SingleAssociation<Object>> associations = new ArrayList<>(models.size());
+            for (Model model : models) {
+                SingleAssociation<?> association = column.get(model);
+                if (association != null) {
+                    associations.add((SingleAssociation<Object>) association);
+                }
+            }
+            SingleAssociation.prefetch(conn, associations);
+        }
+    }
+
     /**
      * Executes a query and returns the result as a list.
      *
@@ -327,9 +614,56 @@ public abstract class Selector<Model, S extends Selector<Model, ?>>
         } finally {
             cursor.close();
         }
+        prefetchAssociations(list);
+        return list;
+    }
+
+    /**
+     * Loads all the models like {@link #toList()}, but by a query for each {@code batchSize} rows.
+     *
+     * <p>A cursor fills a {@code CursorWindow} of a fixed size, and SQLite steps over all the preceding rows again
+     * each time the window is refilled. Batches small enough for a window are fetched by keyset pagination
+     * as {@link #iterator()} does, so a large result is stepped just once. Note that the batches are not in a
+     * snapshot unless called in a transaction.</p>
+     *
+     * @param batchSize The number of rows in a query
+     * @return The models the selector represents
+     */
+    @Experimental
+    @NonNull
+    public List<Model> toListInBatches(@IntRange(from = 1) int batchSize) {
+        ArrayList<Model> list = new ArrayList<>();
+        new OrmaIterator<>(this, batchSize).drainTo(list);
         return list;
     }
 
+    /**
+     * Calls {@code consumer} for each row with {@code holder} overwritten by the row, so that scanning a large table
+     * allocates no model for each row. {@code holder} must not be kept by {@code consumer}, and associations
+     * specified by {@link #prefetch(ColumnDef)} are not loaded.
+     *
+     * @param holder   A model instance to reuse, which must not be created by a {@code @Setter} constructor
+     * @param consumer A function called with {@code holder} for each row
+     * @throws IllegalStateException if the model is created by a {@code @Setter} constructor
+     */
+    @Experimental
+    public void forEachReusing(@NonNull Model holder, @NonNull Consumer1<? super Model> consumer) {
+        Schema<Model> schema = getSchema();
+        if (!schema.isPopulatableFromCursor()) {
+            throw new IllegalStateException("forEachReusing() is not available for "
+                    + schema.getModelClass().getName() + ", which is created by its @Setter constructor");
+        }
+        Cursor cursor = execute();
+        try {
+            for (int pos = 0; cursor.moveToPosition(pos); pos++) {
+                schema.populateFromCursor(conn, holder, cursor, 0);
+                consumer.accept(holder);
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
     @NonNull
     public Model newModelFromCursor(@NonNull Cursor cursor) {
         return getSchema().newModelFromCursor(conn, cursor, 0);
@@ -353,6 +687,46 @@ public abstract class Selector<Model, S extends Selector<Model, ?>>
         });
     }
 
+    /**
+     * Streams models in windows of {@link OrmaIterator#BATCH_SIZE}.
+     *
+     * @see #executeAsFlowable(int)
+     */
+    @CheckResult
+    @NonNull
+    public Flowable<Model> executeAsFlowable() {
+        return executeAsFlowable(OrmaIterator.BATCH_SIZE);
+    }
+
+    /**
+     * Streams models with backpressure. Models are fetched in windows of {@code windowSize} as the subscriber
+     * requests them, and the cursor of each window is closed before its models are emitted,
+     * so a slow subscriber holds at most one window of models and no cursor.
+     * Cancelling the subscription stops fetching windows.
+     *
+     * @param windowSize The number of models fetched at once
+     * @return A cold {@link Flowable} that queries the database on subscription
+     */
+    @CheckResult
+    @NonNull
+    public Flowable<Model> executeAsFlowable(@IntRange(from = 1) final int windowSize) {
+        return Flowable.generate(new Callable<OrmaIterator<Model>>() {
+            @Override
+            public OrmaIterator<Model> call() throws Exception {
+                return new OrmaIterator<>(Selector.this, windowSize);
+            }
+        }, new BiConsumer<OrmaIterator<Model>, Emitter<Model>>() {
+            @Override
+            public void accept(OrmaIterator<Model> iterator, Emitter<Model> emitter) throws Exception {
+                if (iterator.hasNext()) {
+                    emitter.onNext(iterator.next());
+                } else {
+                    emitter.onComplete();
+                }
+            }
+        });
+    }
+
     // implements Iterable<Model>
 
     /**
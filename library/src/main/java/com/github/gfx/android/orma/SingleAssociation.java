@@ -22,9 +22,15 @@ import com.github.gfx.android.orma.exception.NoValueException;
 import com.github.gfx.android.orma.gson.SingleAssociationTypeAdapterFactory;
 import com.github.gfx.android.orma.internal.Schemas;
 
+import android.database.Cursor;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 
 import io.reactivex.Single;
 import io.reactivex.SingleEmitter;
@@ -38,30 +44,62 @@ import io.reactivex.SingleOnSubscribe;
 @JsonAdapter(SingleAssociationTypeAdapterFactory.class)
 public class SingleAssociation<Model> implements Parcelable {
 
+    /**
+     * The max number of ids embedded in a prefetch query, which keeps the SQL within 220,000 bytes
+     * because an id takes up to 22 bytes with the separator
+     */
+    static final int MAX_PREFETCH_IDS = 10000;
+
     final long id;
 
     final Single<Model> single;
 
+    /**
+     * The schema of the model to load lazily, or {@code null} if the model is given
+     */
+    @Nullable
+    final Schema<Model> schema;
+
+    /**
+     * A model loaded by {@link Selector#prefetch(ColumnDef)}
+     */
+    @Nullable
+    volatile Model prefetchedModel;
+
     public SingleAssociation(long id, @NonNull Model model) {
         this.id = id;
         this.single = Single.just(model);
+        this.schema = null;
     }
 
     public SingleAssociation(long id, @NonNull Single<Model> single) {
         this.id = id;
         this.single = single;
+        this.schema = null;
     }
 
     public SingleAssociation(@NonNull final OrmaConnection conn, @NonNull final Schema<Model> schema, final long id) {
         this.id = id;
+        this.schema = schema;
         single = Single.create(new SingleOnSubscribe<Model>() {
             @Override
             public void subscribe(SingleEmitter<Model> emitter) throws Exception {
                 ColumnDef<Model, ?> primaryKey = schema.getPrimaryKey();
-                String whereClause = primaryKey.getEscapedName() + " = ?";
-                String[] whereArgs = {String.valueOf(id)};
-                Model model = conn.querySingle(schema, schema.getDefaultResultColumns(),
-                        whereClause, whereArgs, null, null, null, 0);
+                IdentityMap identityMap = conn.getIdentityMap();
+                Model model = prefetchedModel;
+                if (model == null) {
+                    model = identityMap.get(schema, id);
+                }
+                if (model == null) {
+                    long version = identityMap.getVersion();
+                    String whereClause = primaryKey.getEscapedName() + " = ?";
+                    String[] whereArgs = {String.valueOf(id)};
+                    model = conn.querySingle(schema, schema.getDefaultResultColumns(),
+                            whereClause, whereArgs, null, null, null, 0);
+                    if (model != null) {
+                        identityMap.put(schema, id, model, version);
+                    }
+                }
                 if (model != null) {
                     emitter.onSuccess(model);
                 } else {
@@ -72,6 +110,68 @@ public class SingleAssociation<Model> implements Parcelable {
         });
     }
 
+    /**
+     * Loads the models that lazy {@code associations} refer to by a query for each {@link #MAX_PREFETCH_IDS} ids,
+     * skipping those in the identity map.
+     */
+    static <T> void prefetch(@NonNull OrmaConnection conn, @NonNull List<SingleAssociation<T>> associations) {
+        Schema<T> schema = null;
+        IdentityMap identityMap = conn.getIdentityMap();
+        HashMap<Long, T> models = new HashMap<>();
+        List<Long> ids = new ArrayList<>();
+        for (SingleAssociation<T> association : associations) {
+            if (association.schema == null || association.prefetchedModel != null
+                    || models.containsKey(association.id)) {
+                continue;
+            }
+            schema = association.schema;
+            T model = identityMap.get(schema, association.id);
+            models.put(association.id, model);
+            if (model == null) {
+                ids.add(association.id);
+            }
+        }
+        if (schema == null) {
+            return;
+        }
+
+        ColumnDef<T, ?> primaryKey = schema.getPrimaryKey();
+        long version = identityMap.getVersion();
+        for (int start = 0; start < ids.size(); start += MAX_PREFETCH_IDS) {
+            // ids are embedded as literals to avoid the limit of host parameters
+            StringBuilder sql = new StringBuilder(schema.getDefaultSelectFromClause());
+            sql.append(" WHERE ");
+            sql.append(primaryKey.getQualifiedName());
+            sql.append(" IN (");
+            for (int i = start, end = Math.min(start + MAX_PREFETCH_IDS, ids.size()); i < end; i++) {
+                if (i != start) {
+                    sql.append(", ");
+                }
+                sql.append((long) ids.get(i));
+            }
+            sql.append(')');
+
+            Cursor cursor = conn.rawQuery(sql.toString());
+            try {
+                while (cursor.moveToNext()) {
+                    T model = schema.newModelFromCursor(conn, cursor, 0);
+                    long id = ((Number) primaryKey.getSerialized(model)).longValue();
+                    models.put(id, model);
+                    identityMap.put(schema, id, model, version);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        for (SingleAssociation<T> association : associations) {
+            T model = models.get(association.id);
+            if (model != null && association.schema != null) {
+                association.prefetchedModel = model;
+            }
+        }
+    }
+
     @SuppressWarnings("unchecked")
     public static <T> SingleAssociation<T> just(@NonNull T model) {
         Schema<T> schema = Schemas.get((Class<T>) model.getClass());
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gfx.android.orma;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded LRU cache of compiled {@link SQLiteStatement} keyed by SQL, owned by an {@link OrmaConnection}.
+ *
+ * <p>A statement returned by {@link #acquire(SQLiteDatabase, String)} is used exclusively by the caller until it is
+ * returned by {@link #release(String, SQLiteStatement)}, so a statement is never shared by threads. While a
+ * statement is in use, another caller of the same SQL gets a newly compiled one.</p>
+ */
+public class StatementCache {
+
+    public static final int DEFAULT_MAX_SIZE = 32;
+
+    /**
+     * Statements longer than it, e.g. with a large {@code IN} list of literals, are compiled but not cached,
+     * because such SQL rarely repeats and would evict other statements.
+     */
+    public static final int MAX_SQL_LENGTH = 8 * 1024;
+
+    final int maxSize;
+
+    /**
+     * Statements not in use
+     */
+    final LinkedHashMap<String, SQLiteStatement> statements;
+
+    long hitCount = 0;
+
+    long missCount = 0;
+
+    long evictionCount = 0;
+
+    public StatementCache(@IntRange(from = 0) int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must not be negative: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.statements = new LinkedHashMap<String, SQLiteStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SQLiteStatement> eldest) {
+                if (size() > StatementCache.this.maxSize) {
+                    evictionCount++;
+                    eldest.getValue().close();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Takes the statement of {@code sql} out of the cache, or compiles it if it is not cached or in use.
+     *
+     * @param db  The database to compile {@code sql} on a cache miss
+     * @param sql An SQL statement
+     * @return A compiled statement which the caller must return by {@link #release(String, SQLiteStatement)}
+     */
+    @NonNull
+    public SQLiteStatement acquire(@NonNull SQLiteDatabase db, @NonNull String sql) {
+        synchronized (this) {
+            SQLiteStatement statement = statements.remove(sql);
+            if (statement != null) {
+                hitCount++;
+                return statement;
+            }
+            missCount++;
+        }
+        return db.compileStatement(sql);
+    }
+
+    /**
+     * Puts {@code statement} back to the cache, or closes it if the cache has another statement of {@code sql}.
+     *
+     * @param sql       The SQL of {@code statement}
+     * @param statement A statement returned by {@link #acquire(SQLiteDatabase, String)}
+     */
+    public void release(@NonNull String sql, @NonNull SQLiteStatement statement) {
+        if (maxSize != 0 && sql.length() <= MAX_SQL_LENGTH) {
+            statement.clearBindings();
+            synchronized (this) {
+                if (!statements.containsKey(sql)) {
+                    statements.put(sql, statement);
+                    return;
+                }
+            }
+        }
+        statement.close();
+    }
+
+    /**
+     * Closes all the statements in the cache. Statements in use are closed when they are released.
+     */
+    public synchronized void evictAll() {
+        for (SQLiteStatement statement : statements.values()) {
+            statement.close();
+        }
+        evictionCount += statements.size();
+        statements.clear();
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    public synchronized int size() {
+        return statements.size();
+    }
+
+    public synchronized long hitCount() {
+        return hitCount;
+    }
+
+    public synchronized long missCount() {
+        return missCount;
+    }
+
+    public synchronized long evictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "StatementCache{" +
+                "maxSize=" + maxSize +
+                ", size=" + statements.size() +
+                ", hits=" + hitCount +
+                ", misses=" + missCount +
+                ", evictions=" + evictionCount +
+                '}';
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma;
+
+import com.github.gfx.android.orma.annotation.Experimental;
+
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * A row of a {@link Projection}, which holds the values of the projected columns.
+ *
+ * @param <Model> The model that the columns belong to
+ */
+@Experimental
+public class Tuple<Model> {
+
+    final ColumnDef<Model, ?>[] columns;
+
+    final Object[] values;
+
+    Tuple(@NonNull ColumnDef<Model, ?>[] columns, @NonNull Object[] values) {
+        this.columns = columns;
+        this.values = values;
+    }
+
+    /**
+     * @param column One of the projected columns
+     * @return The value of {@code column}
+     * @throws IllegalArgumentException if {@code column} is not projected
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable
+    public <T> T get(@NonNull ColumnDef<Model, T> column) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] == column) {
+                return (T) values[i];
+            }
+        }
+        throw new IllegalArgumentException("No such column in the projection: " + column);
+    }
+
+    @Nullable
+    public Object get(@IntRange(from = 0) int index) {
+        return values[index];
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Tuple)) {
+            return false;
+        }
+        Tuple<?> other = (Tuple<?>) o;
+        return Arrays.equals(columns, other.columns) && Arrays.equals(values, other.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Tuple{");
+        for (int i = 0; i < columns.length; i++) {
+            if (i != 0) {
+                sb.append(", ");
+            }
+            sb.append(columns[i].name);
+            sb.append('=');
+            sb.append(values[i]);
+        }
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -15,6 +15,7 @@
  */
 package com.github.gfx.android.orma;
 
+import com.github.gfx.android.orma.event.RowIdSet;
 import com.github.gfx.android.orma.internal.OrmaConditionBase;
 
 import android.content.ContentValues;
@@ -46,7 +47,9 @@ public abstract class Updater<Model, U extends Updater<Model, ?>> extends OrmaCo
      * @return The number of rows updated.
      */
     public int execute() {
-        return conn.update(getSchema(), contents, getWhereClause(), getBindArgs());
+        RowIdSet changedRowIds = contents.containsKey(getSchema().getPrimaryKey().getEscapedName())
+                ? RowIdSet.ALL : getRowIdSet();
+        return conn.update(getSchema(), contents, getWhereClause(), getTypedBindArgs(), changedRowIds);
     }
 
     @CheckResult
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma;
+
+import com.github.gfx.android.orma.annotation.Experimental;
+import com.github.gfx.android.orma.annotation.OnConflict;
+import com.github.gfx.android.orma.event.DataSetChangedEvent;
+
+import android.database.sqlite.SQLiteStatement;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Represents prepared statements to insert models or to update the rows if they exist, i.e. upsert, which is
+ * different from {@link Relation#upserter()} in that it never deletes rows. That is, it neither triggers
+ * {@code ON DELETE} actions of foreign keys nor changes the columns which are not in the model.</p>
+ *
+ * <p>It uses {@code INSERT ... ON CONFLICT(primary key) DO UPDATE SET ...} on SQLite 3.24.0 or later, and
+ * {@code UPDATE} followed by {@code INSERT} for the rows not updated otherwise.</p>
+ *
+ * <p>Rows are matched only by the primary key. A model that conflicts with another row in a {@code UNIQUE}
+ * column makes {@link android.database.sqlite.SQLiteConstraintException}, while {@link Relation#upserter()}
+ * replaces the conflicting row.</p>
+ */
+@Experimental
+public class Upserter<Model> implements Closeable {
+
+    /**
+     * The version that {@code INSERT ... ON CONFLICT DO UPDATE} is introduced
+     */
+    static final int NATIVE_UPSERT_SQLITE_VERSION = 3024000;
+
+    final OrmaConnection conn;
+
+    final Schema<Model> schema;
+
+    // native upsert
+
+    @Nullable
+    final SQLiteStatement statement;
+
+    @Nullable
+    final String sql;
+
+    // fallback
+
+    @Nullable
+    final BulkUpdater<Model> updater;
+
+    @Nullable
+    final Inserter<Model> inserter;
+
+    public Upserter(@NonNull OrmaConnection conn, @NonNull Schema<Model> schema) {
+        BulkUpdater.checkPrimaryKey(schema);
+        this.conn = conn;
+        this.schema = schema;
+
+        List<ColumnDef<Model, ?>> columns = getNonPrimaryKeyColumns(schema);
+
+        if (conn.getSQLiteVersionNumber() >= NATIVE_UPSERT_SQLITE_VERSION) {
+            sql = buildUpsertStatement(schema, columns);
+            statement = conn.acquireStatement(sql);
+            updater = null;
+            inserter = null;
+        } else {
+            sql = null;
+            statement = null;
+            if (columns.isEmpty()) {
+                updater = null; // nothing to update
+                inserter = new Inserter<>(conn, schema, OnConflict.IGNORE, false);
+            } else {
+                @SuppressWarnings({"unchecked", "rawtypes"})
+                ColumnDef<Model, ?>[] columnArray = columns.toArray(new ColumnDef[columns.size()]);
+                updater = new BulkUpdater<>(conn, schema, columnArray);
+                inserter = new Inserter<>(conn, schema, OnConflict.NONE, false);
+            }
+        }
+    }
+
+    @NonNull
+    static <Model> List<ColumnDef<Model, ?>> getNonPrimaryKeyColumns(@NonNull Schema<Model> schema) {
+        List<ColumnDef<Model, ?>> columns = new ArrayList<>();
+        for (ColumnDef<Model, ?> column : schema.getColumns()) {
+            if (!column.isPrimaryKey()) {
+                columns.add(column);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * @return The {@code INSERT ... ON CONFLICT} statement used on SQLite 3.24.0 or later, which updates all the
+     * columns but the primary key, or does nothing if the model has no other columns
+     */
+    @NonNull
+    public static <Model> String buildUpsertStatement(@NonNull Schema<Model> schema) {
+        return buildUpsertStatement(schema, getNonPrimaryKeyColumns(schema));
+    }
+
+    @NonNull
+    static <Model> String buildUpsertStatement(@NonNull Schema<Model> schema, @NonNull List<ColumnDef<Model, ?>> columns) {
+        StringBuilder sb = new StringBuilder(schema.getInsertStatement(OnConflict.NONE, false));
+        sb.append(" ON CONFLICT(");
+        sb.append(schema.getPrimaryKey().getEscapedName());
+        sb.append(')');
+        if (columns.isEmpty()) {
+            sb.append(" DO NOTHING");
+            return sb.toString();
+        }
+        sb.append(" DO UPDATE SET ");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i != 0) {
+                sb.append(',');
+            }
+            String name = columns.get(i).getEscapedName();
+            sb.append(name);
+            sb.append("=excluded.");
+            sb.append(name);
+        }
+        return sb.toString();
+    }
+
+    public boolean isNativeUpsert() {
+        return statement != null;
+    }
+
+    /**
+     * Inserts {@code model}, or updates the row with the same primary key. It runs in a transaction.
+     *
+     * @param model A model to upsert
+     */
+    public void execute(@NonNull final Model model) {
+        final DataSetChangedEvent.Type[] type = new DataSetChangedEvent.Type[1];
+        conn.transactionSync(new Runnable() {
+            @Override
+            public void run() {
+                type[0] = upsert(model);
+            }
+        });
+        conn.trigger(type[0], schema);
+    }
+
+    /**
+     * <p>Upserts {@code models} in a transaction.</p>
+     *
+     * <p>It triggers a single {@link DataSetChangedEvent} after all the models are upserted.</p>
+     *
+     * @param models Model objects to upsert
+     */
+    public void executeAll(@NonNull final Iterable<Model> models) {
+        final boolean[] executed = {false};
+        conn.transactionSync(new Runnable() {
+            @Override
+            public void run() {
+                for (Model model : models) {
+                    upsert(model);
+                    executed[0] = true;
+                }
+            }
+        });
+        if (executed[0]) {
+            conn.trigger(DataSetChangedEvent.Type.INSERT, schema);
+        }
+    }
+
+    /**
+     * @return The type of the change, where a native upsert is regarded as {@code INSERT}
+     */
+    @NonNull
+    DataSetChangedEvent.Type upsert(@NonNull final Model model) {
+        if (statement != null) {
+            assert sql != null;
+            if (conn.trace) {
+                conn.trace(sql, schema.convertToArgs(conn, model, false));
+            }
+            long startTime = conn.queryStartTime();
+            schema.bindArgs(conn, statement, model, false);
+            statement.executeInsert();
+            if (conn.queryListener != null) {
+                conn.queryListener.onQuery(new QueryEvent(QueryEvent.Type.INSERT, sql, System.nanoTime() - startTime, 1) {
+                    @Override
+                    protected Object[] loadBindArgs() {
+                        return schema.convertToArgs(conn, model, false);
+                    }
+                });
+            }
+            return DataSetChangedEvent.Type.INSERT;
+        }
+
+        assert inserter != null;
+        if (updater != null && updater.update(model) > 0) {
+            return DataSetChangedEvent.Type.UPDATE;
+        }
+        inserter.insert(model);
+        return DataSetChangedEvent.Type.INSERT;
+    }
+
+    /**
+     * Releases the prepared statements. They are returned to the statement cache of the connection if cached.
+     */
+    @Override
+    public void close() {
+        if (statement != null) {
+            assert sql != null;
+            conn.releaseStatement(sql, statement);
+        }
+        if (updater != null) {
+            updater.close();
+        }
+        if (inserter != null) {
+            inserter.close();
+        }
+    }
+}
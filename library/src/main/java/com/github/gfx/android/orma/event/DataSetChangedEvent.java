@@ -19,6 +19,8 @@ package com.github.gfx.android.orma.event;
 import com.github.gfx.android.orma.Selector;
 import com.github.gfx.android.orma.annotation.Experimental;
 
+import android.support.annotation.NonNull;
+
 @Experimental
 public class DataSetChangedEvent<S extends Selector<?, ?>> {
     public enum Type {
@@ -32,9 +34,32 @@ public class DataSetChangedEvent<S extends Selector<?, ?>> {
 
     private final S selector;
 
+    private final RowIdSet changedRowIds;
+
+    private final int changeCount;
+
     public DataSetChangedEvent(Type type, S selector) {
+        this(type, selector, RowIdSet.ALL);
+    }
+
+    public DataSetChangedEvent(Type type, S selector, @NonNull RowIdSet changedRowIds) {
+        this(type, selector, changedRowIds, 1);
+    }
+
+    DataSetChangedEvent(Type type, S selector, @NonNull RowIdSet changedRowIds, int changeCount) {
         this.type = type;
         this.selector = selector;
+        this.changedRowIds = changedRowIds;
+        this.changeCount = changeCount;
+    }
+
+    /**
+     * Merges another event into this for coalescing. The type becomes {@link Type#TRANSACTION} if they differ.
+     */
+    @NonNull
+    DataSetChangedEvent<S> merge(Type type, @NonNull RowIdSet changedRowIds) {
+        return new DataSetChangedEvent<>(this.type == type ? type : Type.TRANSACTION, selector,
+                this.changedRowIds.union(changedRowIds), changeCount + 1);
     }
 
     public Type getType() {
@@ -44,4 +69,23 @@ public class DataSetChangedEvent<S extends Selector<?, ?>> {
     public S getSelector() {
         return selector;
     }
+
+    /**
+     * Observers are notified only if the changed rows can match their selectors,
+     * so they need not re-query when an unrelated row is changed.
+     *
+     * @return A superset of rowids of the changed rows, or {@link RowIdSet#ALL} if unknown
+     */
+    @NonNull
+    public RowIdSet getChangedRowIds() {
+        return changedRowIds;
+    }
+
+    /**
+     * @return The number of events merged into this event, which is more than {@code 1} only if events are coalesced
+     * @see com.github.gfx.android.orma.OrmaDatabaseBuilderBase#eventCoalescingWindow(long, java.util.concurrent.TimeUnit)
+     */
+    public int getChangeCount() {
+        return changeCount;
+    }
 }
@@ -21,77 +21,248 @@ import com.github.gfx.android.orma.Selector;
 import com.github.gfx.android.orma.annotation.Experimental;
 
 import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.RestrictTo;
 
-import java.util.HashSet;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import io.reactivex.Observable;
 import io.reactivex.Observer;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.schedulers.Schedulers;
 import io.reactivex.subjects.PublishSubject;
 
 /**
- * Helper class for query observables. This class is NOT thread-safe.
+ * Helper class for query observables. Observers may be registered and unregistered in any thread,
+ * while events are fired in the thread that writes changes.
  */
 @RestrictTo(RestrictTo.Scope.GROUP_ID)
 @Experimental
 public class DataSetChangedTrigger {
 
-    final WeakHashMap<Observer<DataSetChangedEvent<?>>, Selector<?, ?>> observerMap = new WeakHashMap<>();
+    final WeakHashMap<Observer<DataSetChangedEvent<?>>, Registration> observerMap = new WeakHashMap<>();
 
-    Set<Schema<?>> changedDataSetInTransaction = null;
+    final long defaultWindowMillis;
+
+    final AtomicLong collapsedEventCount = new AtomicLong();
+
+    Map<Schema<?>, RowIdSet> changedDataSetInTransaction = null;
+
+    public DataSetChangedTrigger() {
+        this(0);
+    }
+
+    /**
+     * @param defaultWindowMillis The default time window to merge events, or {@code 0} to emit events immediately
+     */
+    public DataSetChangedTrigger(long defaultWindowMillis) {
+        this.defaultWindowMillis = defaultWindowMillis;
+    }
 
     public <S extends Selector<?, ?>> Observable<DataSetChangedEvent<S>> create(S selector) {
-        PublishSubject<DataSetChangedEvent<S>> subject = PublishSubject.create();
-        register(subject, selector);
-        return subject;
+        return create(selector, defaultWindowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates an observable that is registered while it has subscribers. Events are emitted synchronously in the
+     * thread that writes the changes, or ends the transaction, if {@code window} is {@code 0}; otherwise coalesced
+     * events are emitted in the computation scheduler of RxJava.
+     *
+     * @param window The time to wait for more events after the first one, or {@code 0} to emit events immediately
+     */
+    public <S extends Selector<?, ?>> Observable<DataSetChangedEvent<S>> create(final S selector, long window,
+            TimeUnit unit) {
+        final PublishSubject<DataSetChangedEvent<S>> subject = PublishSubject.create();
+        final long windowMillis = unit.toMillis(window);
+        return subject
+                .doOnSubscribe(new Consumer<Disposable>() {
+                    @Override
+                    public void accept(Disposable disposable) throws Exception {
+                        register(subject, selector, windowMillis);
+                    }
+                })
+                .doOnDispose(new Action() {
+                    @Override
+                    public void run() throws Exception {
+                        unregister(subject);
+                    }
+                })
+                .share();
     }
 
-    @SuppressWarnings("unchecked")
     public <S extends Selector<?, ?>> void register(Observer<DataSetChangedEvent<S>> observer, Selector<?, ?> selector) {
-        observerMap.put((Observer<DataSetChangedEvent<?>>)(Object)observer, selector);
+        register(observer, selector, defaultWindowMillis);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <S extends Selector<?, ?>> void register(Observer<DataSetChangedEvent<S>> observer, Selector<?, ?> selector,
+            long windowMillis) {
+        synchronized (observerMap) {
+            observerMap.put((Observer<DataSetChangedEvent<?>>) (Object) observer, new Registration(selector, windowMillis));
+        }
+    }
+
+    /**
+     * Removes {@code observer} and disposes the worker that delivers its coalesced events.
+     * Observers are also removed when they are garbage-collected, but their workers are not disposed explicitly then.
+     */
+    public void unregister(Observer<?> observer) {
+        Registration registration;
+        synchronized (observerMap) {
+            registration = observerMap.remove(observer);
+        }
+        if (registration != null) {
+            registration.dispose();
+        }
+    }
+
+    /**
+     * @return The number of events merged into other events by coalescing
+     */
+    public long getCollapsedEventCount() {
+        return collapsedEventCount.get();
     }
 
     public <Model> void fire(SQLiteDatabase db, DataSetChangedEvent.Type type, Schema<Model> schema) {
-        if (observerMap.isEmpty()) {
-            return;
+        fire(db, type, schema, RowIdSet.ALL);
+    }
+
+    /**
+     * Notifies observers whose selectors can match {@code changedRowIds}.
+     */
+    public <Model> void fire(SQLiteDatabase db, DataSetChangedEvent.Type type, Schema<Model> schema,
+            RowIdSet changedRowIds) {
+        synchronized (observerMap) {
+            if (observerMap.isEmpty()) {
+                return;
+            }
         }
         if (db.inTransaction()) {
-            addChangedDataSetInTransaction(schema);
+            addChangedDataSetInTransaction(schema, changedRowIds);
             return;
         }
 
-        for (Map.Entry<Observer<DataSetChangedEvent<?>>, Selector<?, ?>> entry : observerMap.entrySet()) {
-            Selector<?, ?> selector = entry.getValue();
-            if (schema == selector.getSchema()) {
-                Observer<DataSetChangedEvent<?>> observer = entry.getKey();
-                observer.onNext(new DataSetChangedEvent<>(type, selector));
+        for (Map.Entry<Observer<DataSetChangedEvent<?>>, Registration> entry : getEntries()) {
+            Registration registration = entry.getValue();
+            if (schema == registration.selector.getSchema()
+                    && changedRowIds.intersects(registration.selector.getRowIdSet())) {
+                dispatch(entry.getKey(), registration, type, changedRowIds);
             }
         }
     }
 
-    private void addChangedDataSetInTransaction(Schema<?> schema) {
+    /**
+     * @return A copy of the registrations, so that observers are called without the lock
+     */
+    private List<Map.Entry<Observer<DataSetChangedEvent<?>>, Registration>> getEntries() {
+        synchronized (observerMap) {
+            if (observerMap.isEmpty()) {
+                return Collections.emptyList();
+            }
+            List<Map.Entry<Observer<DataSetChangedEvent<?>>, Registration>> entries = new ArrayList<>(observerMap.size());
+            for (Map.Entry<Observer<DataSetChangedEvent<?>>, Registration> entry : observerMap.entrySet()) {
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+            }
+            return entries;
+        }
+    }
+
+    private void addChangedDataSetInTransaction(Schema<?> schema, RowIdSet changedRowIds) {
         if (changedDataSetInTransaction == null) {
-            changedDataSetInTransaction = new HashSet<>();
+            changedDataSetInTransaction = new HashMap<>();
         }
 
-        changedDataSetInTransaction.add(schema);
+        RowIdSet rowIds = changedDataSetInTransaction.get(schema);
+        changedDataSetInTransaction.put(schema, rowIds != null ? rowIds.union(changedRowIds) : changedRowIds);
     }
 
     public void fireForTransaction() {
-        Set<Schema<?>> schemaSet = changedDataSetInTransaction;
+        Map<Schema<?>, RowIdSet> changedDataSet = changedDataSetInTransaction;
         changedDataSetInTransaction = null;
 
-        if (schemaSet == null) {
+        if (changedDataSet == null) {
             return;
         }
-        for (Map.Entry<Observer<DataSetChangedEvent<?>>, Selector<?, ?>> entry : observerMap.entrySet()) {
-            Selector<?, ?> selector = entry.getValue();
-            if (schemaSet.contains(selector.getSchema())) {
-                Observer<DataSetChangedEvent<?>> observer = entry.getKey();
-                observer.onNext(new DataSetChangedEvent<>(DataSetChangedEvent.Type.TRANSACTION, selector));
+        for (Map.Entry<Observer<DataSetChangedEvent<?>>, Registration> entry : getEntries()) {
+            Registration registration = entry.getValue();
+            RowIdSet changedRowIds = changedDataSet.get(registration.selector.getSchema());
+            if (changedRowIds != null && changedRowIds.intersects(registration.selector.getRowIdSet())) {
+                dispatch(entry.getKey(), registration, DataSetChangedEvent.Type.TRANSACTION, changedRowIds);
+            }
+        }
+    }
+
+    private void dispatch(final Observer<DataSetChangedEvent<?>> observer, final Registration registration,
+            DataSetChangedEvent.Type type, RowIdSet changedRowIds) {
+        if (registration.windowMillis <= 0) {
+            observer.onNext(new DataSetChangedEvent<>(type, registration.selector, changedRowIds));
+            return;
+        }
+
+        synchronized (registration) {
+            if (registration.pendingEvent != null) {
+                registration.pendingEvent = registration.pendingEvent.merge(type, changedRowIds);
+                collapsedEventCount.incrementAndGet();
+                return;
+            }
+            registration.pendingEvent = new DataSetChangedEvent<>(type, registration.selector, changedRowIds);
+        }
+
+        // the worker of the registration runs tasks one by one, so that onNext() is never called concurrently
+        registration.getWorker().schedule(new Runnable() {
+            @Override
+            public void run() {
+                DataSetChangedEvent<?> event;
+                synchronized (registration) {
+                    event = registration.pendingEvent;
+                    registration.pendingEvent = null;
+                }
+                observer.onNext(event);
+            }
+        }, registration.windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    static class Registration {
+
+        @NonNull
+        final Selector<?, ?> selector;
+
+        final long windowMillis;
+
+        @Nullable
+        Scheduler.Worker worker;
+
+        @Nullable
+        DataSetChangedEvent<?> pendingEvent;
+
+        Registration(@NonNull Selector<?, ?> selector, long windowMillis) {
+            this.selector = selector;
+            this.windowMillis = windowMillis;
+        }
+
+        @NonNull
+        synchronized Scheduler.Worker getWorker() {
+            if (worker == null) {
+                worker = Schedulers.computation().createWorker();
+            }
+            return worker;
+        }
+
+        synchronized void dispose() {
+            if (worker != null) {
+                worker.dispose();
             }
         }
     }
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gfx.android.orma.event;
+
+import com.github.gfx.android.orma.annotation.Experimental;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * An immutable superset of rowids, described by a closed range and optionally by the rowids themselves.
+ * It represents rows changed by a statement, or rows that can match the conditions of a selector.
+ * {@link #ALL} is used if the rows are unknown.
+ */
+@Experimental
+public class RowIdSet {
+
+    public static final RowIdSet ALL = new RowIdSet(Long.MIN_VALUE, Long.MAX_VALUE, null);
+
+    public static final RowIdSet EMPTY = new RowIdSet(0, -1, new long[0]);
+
+    /**
+     * Rowids more than it are represented only by their range.
+     */
+    static final int MAX_ROW_IDS = 1000;
+
+    final long min;
+
+    final long max;
+
+    /**
+     * Sorted and unique rowids within {@code [min, max]}, or {@code null} for all the rowids in the range.
+     */
+    @Nullable
+    final long[] rowIds;
+
+    RowIdSet(long min, long max, @Nullable long[] rowIds) {
+        this.min = min;
+        this.max = max;
+        this.rowIds = rowIds;
+    }
+
+    @NonNull
+    public static RowIdSet of(@NonNull long... rowIds) {
+        if (rowIds.length == 0) {
+            return EMPTY;
+        }
+        long[] sorted = rowIds.clone();
+        Arrays.sort(sorted);
+        int size = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] != sorted[size - 1]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return create(sorted[0], sorted[size - 1], Arrays.copyOf(sorted, size));
+    }
+
+    @NonNull
+    public static RowIdSet range(long min, long max) {
+        if (min > max) {
+            return EMPTY;
+        }
+        return new RowIdSet(min, max, null);
+    }
+
+    @NonNull
+    private static RowIdSet create(long min, long max, @Nullable long[] rowIds) {
+        if (rowIds != null && rowIds.length == 0) {
+            return EMPTY;
+        }
+        if (rowIds != null && rowIds.length > MAX_ROW_IDS) {
+            return range(min, max);
+        }
+        return new RowIdSet(min, max, rowIds);
+    }
+
+    public boolean isAll() {
+        return rowIds == null && min == Long.MIN_VALUE && max == Long.MAX_VALUE;
+    }
+
+    public boolean isEmpty() {
+        return min > max;
+    }
+
+    public long getMin() {
+        return min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @return Sorted rowids, or {@code null} if the set is described only by its range.
+     */
+    @Nullable
+    public long[] getRowIds() {
+        return rowIds != null ? rowIds.clone() : null;
+    }
+
+    public boolean contains(long rowId) {
+        if (rowId < min || rowId > max) {
+            return false;
+        }
+        return rowIds == null || Arrays.binarySearch(rowIds, rowId) >= 0;
+    }
+
+    public boolean intersects(@NonNull RowIdSet other) {
+        if (isEmpty() || other.isEmpty() || max < other.min || other.max < min) {
+            return false;
+        }
+        if (rowIds != null) {
+            for (long rowId : rowIds) {
+                if (other.contains(rowId)) {
+                    return true;
+                }
+            }
+            return false;
+        } else if (other.rowIds != null) {
+            return other.intersects(this);
+        } else {
+            return true;
+        }
+    }
+
+    @NonNull
+    public RowIdSet intersect(@NonNull RowIdSet other) {
+        long newMin = Math.max(min, other.min);
+        long newMax = Math.min(max, other.max);
+        if (newMin > newMax) {
+            return EMPTY;
+        }
+        if (rowIds == null && other.rowIds == null) {
+            return range(newMin, newMax);
+        }
+
+        long[] candidates = rowIds != null ? rowIds : other.rowIds;
+        long[] newRowIds = new long[candidates.length];
+        int size = 0;
+        for (long rowId : candidates) {
+            if (contains(rowId) && other.contains(rowId)) {
+                newRowIds[size++] = rowId;
+            }
+        }
+        if (size == 0) {
+            return EMPTY;
+        }
+        return create(newRowIds[0], newRowIds[size - 1], Arrays.copyOf(newRowIds, size));
+    }
+
+    @NonNull
+    public RowIdSet union(@NonNull RowIdSet other) {
+        if (isEmpty()) {
+            return other;
+        }
+        if (other.isEmpty()) {
+            return this;
+        }
+        long newMin = Math.min(min, other.min);
+        long newMax = Math.max(max, other.max);
+        if (rowIds == null || other.rowIds == null) {
+            return range(newMin, newMax);
+        }
+
+        long[] newRowIds = new long[rowIds.length + other.rowIds.length];
+        System.arraycopy(rowIds, 0, newRowIds, 0, rowIds.length);
+        System.arraycopy(other.rowIds, 0, newRowIds, rowIds.length, other.rowIds.length);
+        return of(newRowIds);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RowIdSet)) {
+            return false;
+        }
+        RowIdSet other = (RowIdSet) o;
+        if (isEmpty() && other.isEmpty()) {
+            return true;
+        }
+        return min == other.min && max == other.max && Arrays.equals(rowIds, other.rowIds);
+    }
+
+    @Override
+    public int hashCode() {
+        if (isEmpty()) {
+            return 0;
+        }
+        int result = (int) (min ^ (min >>> 32));
+        result = 31 * result + (int) (max ^ (max >>> 32));
+        result = 31 * result + Arrays.hashCode(rowIds);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        if (isAll()) {
+            return "RowIdSet{ALL}";
+        } else if (isEmpty()) {
+            return "RowIdSet{EMPTY}";
+        } else if (rowIds != null) {
+            return "RowIdSet{" + Arrays.toString(rowIds) + '}';
+        } else {
+            return "RowIdSet{" + min + ".." + max + '}';
+        }
+    }
+}
@@ -19,10 +19,13 @@ import com.github.gfx.android.orma.ColumnDef;
 import com.github.gfx.android.orma.OrmaConnection;
 import com.github.gfx.android.orma.Schema;
 import com.github.gfx.android.orma.Selector;
+import com.github.gfx.android.orma.event.RowIdSet;
 import com.github.gfx.android.orma.function.Function1;
 
+import android.database.DatabaseUtils;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.RestrictTo;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -30,6 +33,23 @@ import java.util.List;
 
 public abstract class OrmaConditionBase<Model, C extends OrmaConditionBase<Model, ?>> {
 
+    /**
+     * {@code IN} lists longer than it are bound as a JSON array to {@code json_each()} if the JSON1 extension is
+     * available, or embedded as literals, instead of host parameters,
+     * because SQLite limits the number of host parameters to 999 by default.
+     */
+    public static final int MAX_IN_LIST_BIND_ARGS = 100;
+
+    /**
+     * The max length of the literals of an {@code IN} list in UTF-8 bytes, which leaves 100,000 bytes of
+     * {@code SQLITE_MAX_SQL_LENGTH}, 1,000,000 bytes by default, to the rest of the SQL.
+     */
+    public static final int MAX_IN_LIST_LITERALS_LENGTH = 900 * 1000;
+
+    private static final int SQLITE_MAX_VARIABLE_NUMBER = 999;
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
     protected final OrmaConnection conn;
 
     protected String whereConjunction = " AND ";
@@ -37,8 +57,29 @@ public abstract class OrmaConditionBase<Model, C extends OrmaConditionBase<Model
     @Nullable
     protected StringBuilder whereClause;
 
+    /**
+     * Arguments kept in their native types, i.e. {@code Long}, {@code Double}, {@code String}, {@code byte[]} or
+     * {@code null}, so that they are bound by {@code bindLong()}, {@code bindDouble()} and so on.
+     */
+    @Nullable
+    protected ArrayList<Object> bindArgs;
+
+    /**
+     * A cache of {@link #getTypedBindArgs()}, which is cleared when an argument is appended.
+     */
     @Nullable
-    protected ArrayList<String> bindArgs;
+    private Object[] bindArgsArray;
+
+    /**
+     * Rows that can match the conditions, narrowed by conditions on the {@code INTEGER} primary key.
+     */
+    @NonNull
+    protected RowIdSet rowIdSet = RowIdSet.ALL;
+
+    /**
+     * {@code true} if the conditions are joined with {@code OR}, where {@code rowIdSet} is no longer valid.
+     */
+    protected boolean rowIdSetDisabled = false;
 
     public OrmaConditionBase(@NonNull OrmaConnection conn) {
         this.conn = conn;
@@ -58,16 +99,29 @@ public abstract class OrmaConditionBase<Model, C extends OrmaConditionBase<Model
     protected void appendBindArgs(@NonNull Object... args) {
         if (bindArgs == null) {
             bindArgs = new ArrayList<>(args.length);
+        } else {
+            bindArgs.ensureCapacity(bindArgs.size() + args.length);
         }
+        bindArgsArray = null;
 
         for (Object arg : args) {
-            if (arg == null) {
-                bindArgs.add(null);
-            } else if (arg instanceof Boolean) {
-                bindArgs.add((Boolean) arg ? "1" : "0");
-            } else {
-                bindArgs.add(arg.toString());
-            }
+            bindArgs.add(toBindArg(arg));
+        }
+    }
+
+    @Nullable
+    private static Object toBindArg(@Nullable Object arg) {
+        if (arg == null || arg instanceof Long || arg instanceof Double || arg instanceof String
+                || arg instanceof byte[]) {
+            return arg;
+        } else if (arg instanceof Integer || arg instanceof Short || arg instanceof Byte) {
+            return ((Number) arg).longValue();
+        } else if (arg instanceof Float) {
+            return ((Float) arg).doubleValue();
+        } else if (arg instanceof Boolean) {
+            return (Boolean) arg ? 1L : 0L;
+        } else {
+            return arg.toString();
         }
     }
 
@@ -84,6 +138,9 @@ public abstract class OrmaConditionBase<Model, C extends OrmaConditionBase<Model
         if (whereClause == null) {
             whereClause = new StringBuilder(conditions.length() + 2);
         } else {
+            if (whereConjunction.equals(" OR ")) {
+                rowIdSetDisabled = true;
+            }
             whereClause.append(whereConjunction);
         }
 
@@ -97,7 +154,28 @@ public abstract class OrmaConditionBase<Model, C extends OrmaConditionBase<Model
     @SuppressWarnings("unchecked")
     public C where(@NonNull ColumnDef<Model, ?> column, @NonNull String operator, @NonNull Object value) {
         String columnName = (this instanceof Selector) ? column.getQualifiedName() : column.getEscapedName();
-        return where(columnName + ' ' + operator + " ?", value);
+        C self = where(columnName + ' ' + operator + " ?", value);
+        if (isRowIdColumn(column) && isInteger(value)) {
+            long rowId = ((Number) value).longValue();
+            switch (operator) {
+                case "=":
+                    constrainRowIds(RowIdSet.of(rowId));
+                    break;
+                case "<":
+                    constrainRowIds(rowId == Long.MIN_VALUE ? RowIdSet.EMPTY : RowIdSet.range(Long.MIN_VALUE, rowId - 1));
+                    break;
+                case "<=":
+                    constrainRowIds(RowIdSet.range(Long.MIN_VALUE, rowId));
+                    break;
+                case ">":
+                    constrainRowIds(rowId == Long.MAX_VALUE ? RowIdSet.EMPTY : RowIdSet.range(rowId + 1, Long.MAX_VALUE));
+                    break;
+                case ">=":
+                    constrainRowIds(RowIdSet.range(rowId, Long.MAX_VALUE));
+                    break;
+            }
+        }
+        return self;
     }
 
     @SuppressWarnings("unchecked")
@@ -109,7 +187,11 @@ public abstract class OrmaConditionBase<Model, C extends OrmaConditionBase<Model
     @SuppressWarnings("unchecked")
     protected C whereBetween(@NonNull ColumnDef<Model, ?> column, Object a, Object b) {
         String columnName = (this instanceof Selector) ? column.getQualifiedName() : column.getEscapedName();
-        return where(columnName + " BETWEEN ? AND ?", a, b);
+        C self = where(columnName + " BETWEEN ? AND ?", a, b);
+        if (isRowIdColumn(column) && isInteger(a) && isInteger(b)) {
+            constrainRowIds(RowIdSet.range(((Number) a).longValue(), ((Number) b).longValue()));
+        }
+        return self;
     }
 
     @SuppressWarnings("unchecked")
@@ -128,16 +210,158 @@ public abstract class OrmaConditionBase<Model, C extends OrmaConditionBase<Model
             clause.append(" NOT");
         }
         clause.append(" IN (");
-        for (int i = 0, size = values.size(); i < size; i++) {
-            clause.append('?');
+        int start = clause.length();
+        C self;
+        String json;
+        if (values.size() > MAX_IN_LIST_BIND_ARGS && conn.isJson1Available()
+                && (json = toJsonArray(values)) != null) {
+            // the SQL is the same for any list, so it is cached well
+            clause.append("SELECT value FROM json_each(?))");
+            self = where(clause, json);
+        } else if (values.size() > MAX_IN_LIST_BIND_ARGS && appendLiterals(clause, values)) {
+            clause.append(')');
+            self = where(clause);
+        } else if (values.size() > SQLITE_MAX_VARIABLE_NUMBER) {
+            throw new IllegalArgumentException("Too many values in the IN list of " + columnName + ": " + values.size()
+                    + ", which cannot be embedded as literals within " + MAX_IN_LIST_LITERALS_LENGTH + " bytes"
+                    + " while the JSON1 extension is not available");
+        } else {
+            clause.setLength(start);
+            for (int i = 0, size = values.size(); i < size; i++) {
+                clause.append('?');
 
-            if ((i + 1) != size) {
+                if ((i + 1) != size) {
+                    clause.append(", ");
+                }
+            }
+            clause.append(')');
+            self = where(clause, values);
+        }
+        if (!not && isRowIdColumn(column)) {
+            long[] rowIds = new long[values.size()];
+            int i = 0;
+            for (Object value : values) {
+                if (!isInteger(value)) {
+                    return self;
+                }
+                rowIds[i++] = ((Number) value).longValue();
+            }
+            constrainRowIds(RowIdSet.of(rowIds));
+        }
+        return self;
+    }
+
+    /**
+     * Appends {@code values} as SQL literals separated by commas.
+     * Unlike a temporary table, literals work on any connection in the pool, and whenever the condition is executed.
+     *
+     * @return {@code false} if a value cannot be represented as a literal, e.g. {@code NaN}, or the literals exceed
+     * {@link #MAX_IN_LIST_LITERALS_LENGTH}
+     */
+    private static boolean appendLiterals(@NonNull StringBuilder clause, @NonNull Collection<?> values) {
+        long length = 0;
+        boolean first = true;
+        for (Object value : values) {
+            if (length > MAX_IN_LIST_LITERALS_LENGTH) {
+                return false;
+            }
+            int start = clause.length();
+            if (!first) {
                 clause.append(", ");
             }
+            first = false;
+
+            Object arg = toBindArg(value);
+            if (arg == null) {
+                clause.append("NULL");
+            } else if (arg instanceof Long) {
+                clause.append((long) arg);
+            } else if (arg instanceof Double) {
+                double d = (double) arg;
+                if (Double.isNaN(d) || Double.isInfinite(d)) {
+                    return false;
+                }
+                clause.append(d);
+            } else if (arg instanceof byte[]) {
+                clause.append("X'");
+                for (byte b : (byte[]) arg) {
+                    clause.append(HEX_DIGITS[(b >> 4) & 0x0F]);
+                    clause.append(HEX_DIGITS[b & 0x0F]);
+                }
+                clause.append('\'');
+            } else {
+                DatabaseUtils.appendEscapedSQLString(clause, (String) arg);
+                length += utf8Length(clause, start, clause.length());
+                continue;
+            }
+            length += clause.length() - start;
         }
-        clause.append(')');
+        return length <= MAX_IN_LIST_LITERALS_LENGTH;
+    }
 
-        return where(clause, values);
+    /**
+     * @return The length of {@code s[start, end)} in UTF-8, where a surrogate pair is counted as six bytes
+     */
+    private static long utf8Length(@NonNull CharSequence s, int start, int end) {
+        long length = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            length += c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+        }
+        return length;
+    }
+
+    /**
+     * @return {@code values} as a JSON array, or {@code null} if a value cannot be represented in JSON, e.g. a blob
+     */
+    @Nullable
+    private static String toJsonArray(@NonNull Collection<?> values) {
+        StringBuilder json = new StringBuilder(values.size() * 8);
+        json.append('[');
+        boolean first = true;
+        for (Object value : values) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+
+            Object arg = toBindArg(value);
+            if (arg == null) {
+                json.append("null");
+            } else if (arg instanceof Long) {
+                json.append((long) arg);
+            } else if (arg instanceof Double) {
+                double d = (double) arg;
+                if (Double.isNaN(d) || Double.isInfinite(d)) {
+                    return null;
+                }
+                json.append(d);
+            } else if (arg instanceof byte[]) {
+                return null;
+            } else {
+                appendJsonString(json, (String) arg);
+            }
+        }
+        json.append(']');
+        return json.toString();
+    }
+
+    private static void appendJsonString(@NonNull StringBuilder json, @NonNull String s) {
+        json.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\');
+                json.append(c);
+            } else if (c < 0x20) {
+                json.append("\\u00");
+                json.append(HEX_DIGITS[(c >> 4) & 0x0F]);
+                json.append(HEX_DIGITS[c & 0x0F]);
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
     }
 
     @SuppressWarnings("unchecked")
@@ -174,24 +398,72 @@ public abstract class OrmaConditionBase<Model, C extends OrmaConditionBase<Model
 
     @SuppressWarnings("unchecked")
     public C where(@NonNull OrmaConditionBase<Model, ?> condition) {
-        if (condition.whereClause != null && condition.bindArgs != null) {
-            this.where(condition.whereClause, condition.bindArgs);
+        if (condition.whereClause != null) {
+            this.where(condition.whereClause,
+                    condition.bindArgs != null ? condition.bindArgs.toArray() : new Object[0]);
+            constrainRowIds(condition.getRowIdSet());
         }
         return (C) this;
     }
 
+    private boolean isRowIdColumn(@NonNull ColumnDef<Model, ?> column) {
+        return column.isPrimaryKey() && "INTEGER".equals(column.storageType)
+                && column.schema.getModelClass() == getSchema().getModelClass();
+    }
+
+    private static boolean isInteger(@Nullable Object value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+    }
+
+    private void constrainRowIds(@NonNull RowIdSet rowIds) {
+        if (!rowIdSetDisabled) {
+            rowIdSet = rowIdSet.intersect(rowIds);
+        }
+    }
+
+    /**
+     * @return A superset of rowids of rows that match the conditions, or {@link RowIdSet#ALL} if unknown
+     */
+    @RestrictTo(RestrictTo.Scope.GROUP_ID)
+    @NonNull
+    public RowIdSet getRowIdSet() {
+        return rowIdSetDisabled ? RowIdSet.ALL : rowIdSet;
+    }
+
     @Nullable
     protected String getWhereClause() {
         return whereClause != null ? whereClause.toString() : null;
     }
 
+    /**
+     * @return Arguments converted to strings, e.g. {@code "1"} for {@code true}
+     * @see #getTypedBindArgs()
+     */
     @Nullable
     protected String[] getBindArgs() {
-        if (bindArgs != null) {
-            String[] array = new String[bindArgs.size()];
-            return bindArgs.toArray(array);
-        } else {
+        if (bindArgs == null) {
             return null;
         }
+        String[] array = new String[bindArgs.size()];
+        for (int i = 0; i < array.length; i++) {
+            Object arg = bindArgs.get(i);
+            array[i] = arg != null ? arg.toString() : null;
+        }
+        return array;
+    }
+
+    /**
+     * @return Arguments in their native types, which must not be modified because the array is shared until
+     * another argument is appended
+     */
+    @Nullable
+    protected Object[] getTypedBindArgs() {
+        if (bindArgs == null) {
+            return null;
+        }
+        if (bindArgsArray == null) {
+            bindArgsArray = bindArgs.toArray();
+        }
+        return bindArgsArray;
     }
 }
@@ -17,72 +17,180 @@
 package com.github.gfx.android.orma.internal;
 
 import com.github.gfx.android.orma.BuildConfig;
+import com.github.gfx.android.orma.ColumnDef;
+import com.github.gfx.android.orma.OrderSpec;
 import com.github.gfx.android.orma.Selector;
 
 import android.database.Cursor;
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
+/**
+ * Iterates over a selector in batches. Each batch is loaded into memory and its cursor is closed at once,
+ * so the iterator holds no cursor while the caller consumes models.
+ *
+ * <p>If the ordering of the selector consists of non-null columns, batches after the first one are fetched by
+ * keyset pagination, i.e. {@code WHERE (ordering keys) > (the last row's keys)}, instead of {@code OFFSET} that makes
+ * SQLite scan and discard all the preceding rows.</p>
+ */
 public class OrmaIterator<Model> implements Iterator<Model> {
-    static final int BATCH_SIZE = BuildConfig.DEBUG ? 2 : 1000;
+
+    public static final int BATCH_SIZE = BuildConfig.DEBUG ? 2 : 1000;
 
     final Selector<Model, ?> selector;
 
-    final long totalCount;
+    /**
+     * Ordering keys for keyset pagination, or {@code null} to use {@code OFFSET}
+     */
+    @Nullable
+    final List<OrderSpec<Model>> keys;
+
+    final int batchSize;
+
+    /**
+     * The max number of models to iterate, or {@code -1} for unlimited
+     */
+    final long limit;
 
     long totalPos = 0;
 
     long offset;
 
-    Cursor cursor;
+    @Nullable
+    ArrayList<Model> batch;
+
+    int batchPos = 0;
 
-    public OrmaIterator(Selector<Model, ?> selector) {
+    boolean lastBatch = false;
+
+    public OrmaIterator(@NonNull Selector<Model, ?> selector) {
+        this(selector, BATCH_SIZE);
+    }
+
+    public OrmaIterator(@NonNull Selector<Model, ?> selector, @IntRange(from = 1) int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
         this.offset = selector.hasOffset() ? selector.getOffset() : 0L;
-        this.totalCount = selector.hasLimit() ? selector.getLimit() : selector.count();
+        this.limit = selector.hasLimit() ? selector.getLimit() : -1;
         this.selector = selector.clone().resetLimitClause();
-
-        fill();
+        this.keys = this.selector.orderByUniqueKeys();
     }
 
     void fill() {
-        if (cursor != null) {
+        long size = limit != -1 ? Math.min(batchSize, limit - totalPos) : batchSize;
+
+        Cursor cursor;
+        if (keys != null && batch != null && !batch.isEmpty()) {
+            Selector<Model, ?> seeker = selector.clone().resetLimitClause();
+            appendSeekCondition(seeker, keys, batch.get(batch.size() - 1));
+            cursor = seeker
+                    .limit(size)
+                    .execute();
+        } else {
+            cursor = selector
+                    .limit(size)
+                    .offset(offset)
+                    .execute();
+        }
+
+        try {
+            if (batch == null) {
+                batch = new ArrayList<>(cursor.getCount());
+            } else {
+                batch.clear();
+            }
+            for (int pos = 0; cursor.moveToPosition(pos); pos++) {
+                batch.add(selector.newModelFromCursor(cursor));
+            }
+        } finally {
             cursor.close();
         }
-        cursor = selector
-                .limit(BATCH_SIZE)
-                .offset(offset)
-                .execute();
+        selector.prefetchAssociations(batch);
 
-        cursor.moveToFirst();
+        batchPos = 0;
+        lastBatch = batch.size() < size;
+        offset += size;
+    }
+
+    /**
+     * Appends {@code (k1 > ?) OR (k1 = ? AND k2 > ?) OR ...}, where {@code >} is {@code <} for descending keys.
+     * It is used instead of row values, {@code (k1, k2) > (?, ?)}, which require SQLite 3.15 and cannot mix directions.
+     */
+    public static <Model> void appendSeekCondition(@NonNull Selector<Model, ?> selector, @NonNull List<OrderSpec<Model>> keys,
+            @NonNull Model lastModel) {
+        int numKeys = keys.size();
+        Object[] values = new Object[numKeys];
+        for (int i = 0; i < numKeys; i++) {
+            values[i] = keys.get(i).column.getSerialized(lastModel);
+        }
 
-        offset += BATCH_SIZE;
+        StringBuilder conditions = new StringBuilder();
+        Object[] args = new Object[numKeys * (numKeys + 1) / 2];
+        int argIndex = 0;
+        for (int i = 0; i < numKeys; i++) {
+            if (i != 0) {
+                conditions.append(" OR ");
+            }
+            conditions.append('(');
+            for (int j = 0; j < i; j++) {
+                conditions.append(keys.get(j).column.getQualifiedName());
+                conditions.append(" = ? AND ");
+                args[argIndex++] = values[j];
+            }
+            OrderSpec<Model> key = keys.get(i);
+            ColumnDef<Model, ?> column = key.column;
+            conditions.append(column.getQualifiedName());
+            conditions.append(OrderSpec.DESC.equals(key.ordering) ? " < ?" : " > ?");
+            conditions.append(')');
+            args[argIndex++] = values[i];
+        }
+        selector.where(conditions, args);
     }
 
     @Override
     public boolean hasNext() {
-        return totalPos < totalCount;
+        if (limit != -1 && totalPos >= limit) {
+            return false;
+        }
+        if (batch != null) {
+            if (batchPos < batch.size()) {
+                return true;
+            }
+            if (lastBatch) {
+                return false;
+            }
+        }
+        fill();
+        return batchPos < batch.size();
     }
 
     @Override
     public Model next() {
-        if (totalPos >= totalCount) {
+        if (!hasNext()) {
             throw new NoSuchElementException("OrmaIterator#next()");
         }
-
-        Model model = selector.newModelFromCursor(cursor);
-
         totalPos++;
+        return batch.get(batchPos++);
+    }
 
-        if (!hasNext()) {
-            cursor.close();
-        } else if (cursor.isLast()) {
-            fill();
-        } else {
-            cursor.moveToNext();
+    /**
+     * Adds all the remaining models to {@code list} batch by batch.
+     */
+    public void drainTo(@NonNull List<Model> list) {
+        while (hasNext()) {
+            int size = batch.size();
+            list.addAll(batchPos == 0 ? batch : batch.subList(batchPos, size));
+            totalPos += size - batchPos;
+            batchPos = size;
         }
-
-        return model;
     }
 
     @Override
@@ -17,22 +17,33 @@
 package com.github.gfx.android.orma.widget;
 
 import com.github.gfx.android.orma.BuildConfig;
+import com.github.gfx.android.orma.OrderSpec;
 import com.github.gfx.android.orma.Relation;
 import com.github.gfx.android.orma.Selector;
+import com.github.gfx.android.orma.annotation.Experimental;
 import com.github.gfx.android.orma.exception.NoValueException;
+import com.github.gfx.android.orma.internal.OrmaIterator;
 
 import android.content.Context;
 import android.support.annotation.CheckResult;
+import android.support.annotation.IntRange;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v4.util.LruCache;
+import android.util.Log;
 import android.view.LayoutInflater;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Callable;
 
 import io.reactivex.Maybe;
 import io.reactivex.Observable;
 import io.reactivex.Single;
+import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.functions.Consumer;
+import io.reactivex.schedulers.Schedulers;
 
 /**
  * A helper class that provides adapter class details.
@@ -43,26 +54,130 @@ public class OrmaAdapter<Model> {
 
     public static final int CACHE_SIZE = BuildConfig.DEBUG ? 2 : 256;
 
+    static final String TAG = OrmaAdapter.class.getSimpleName();
+
     protected final Context context;
 
     protected final Relation<Model, ?> relation;
 
-    protected final LruCache<Integer, Model> cache = new LruCache<>(CACHE_SIZE);
+    protected final LruCache<Integer, Model> cache;
+
+    /**
+     * The number of rows loaded by a query
+     */
+    protected final int pageSize;
+
+    /**
+     * The relation's selector ordered by unique keys if possible, which is used to load pages
+     */
+    final Selector<Model, ?> pageSelector;
+
+    @Nullable
+    final List<OrderSpec<Model>> keys;
+
+    /**
+     * The last items of loaded pages, used to load the next pages by keyset pagination
+     */
+    final LruCache<Integer, Model> pageTails;
+
+    /**
+     * Pages whose items are all in {@code cache}; a page is removed when any of its items is evicted
+     */
+    final Set<Integer> loadedPages = new HashSet<>();
+
+    /**
+     * Pages being loaded for {@code dataSetVersion}, which are removed when the loads complete
+     */
+    final Set<Integer> loadingPages = new HashSet<>();
 
     protected final Observable<Selector<Model, ?>> queryObservable;
 
+    /**
+     * Incremented each time the query observable yields, i.e. the data-set is changed
+     */
+    long dataSetVersion = 0;
+
+    /**
+     * {@code COUNT(*)} of the relation for {@code dataSetVersion}, or {@code -1} if not yet loaded
+     */
+    int cachedCount = -1;
+
+    /**
+     * The last count loaded, which survives invalidation to be shown until a new count is loaded
+     */
+    int lastLoadedCount = 0;
+
+    boolean countRequested = false;
+
+    @Nullable
+    volatile LoadCallback loadCallback;
+
+    long countHitCount = 0;
+
+    long countMissCount = 0;
+
     public OrmaAdapter(@NonNull Context context, @NonNull Relation<Model, ?> relation) {
+        this(context, relation, CACHE_SIZE);
+    }
+
+    /**
+     * @param cacheSize The max number of items to cache, where a quarter of it is loaded by a query
+     */
+    public OrmaAdapter(@NonNull Context context, @NonNull Relation<Model, ?> relation,
+            @IntRange(from = 1) int cacheSize) {
+        this(context, relation, cacheSize, Math.max(cacheSize / 4, 1));
+    }
+
+    /**
+     * @param cacheSize The max number of items to cache
+     * @param pageSize  The number of items loaded by a query, which must not be larger than {@code cacheSize}
+     */
+    public OrmaAdapter(@NonNull Context context, @NonNull Relation<Model, ?> relation,
+            @IntRange(from = 1) int cacheSize, @IntRange(from = 1) int pageSize) {
+        if (pageSize < 1 || pageSize > cacheSize) {
+            throw new IllegalArgumentException("pageSize must be in 1.." + cacheSize + ": " + pageSize);
+        }
         this.context = context;
         this.relation = relation;
+        this.pageSize = pageSize;
+        this.cache = new LruCache<Integer, Model>(cacheSize) {
+            @Override
+            protected void entryRemoved(boolean evicted, Integer key, Model oldValue, Model newValue) {
+                if (evicted) {
+                    // called in loadPage() or invalidate(), which hold the lock of the adapter
+                    loadedPages.remove(key / OrmaAdapter.this.pageSize);
+                }
+            }
+        };
+        this.pageSelector = relation.selector();
+        this.keys = pageSelector.orderByUniqueKeys();
+        this.pageTails = new LruCache<>(Math.max(cacheSize / pageSize, 1) * 2);
         this.queryObservable = relation.createQueryObservable();
         queryObservable.subscribe(new Consumer<Selector<Model, ?>>() {
             @Override
             public void accept(Selector<Model, ?> models) throws Exception {
-                cache.evictAll();
+                invalidate();
             }
         });
     }
 
+    /**
+     * Discards the cached count and items. It is called when the data-set is changed.
+     */
+    public synchronized void invalidate() {
+        dataSetVersion++;
+        cachedCount = -1;
+        cache.evictAll();
+        pageTails.evictAll();
+        loadedPages.clear();
+        loadingPages.clear();
+        countRequested = false;
+    }
+
+    public synchronized long getDataSetVersion() {
+        return dataSetVersion;
+    }
+
     @NonNull
     public Observable<Selector<Model, ?>> getQueryObservable() {
         return queryObservable;
@@ -78,8 +193,76 @@ public class OrmaAdapter<Model> {
         return LayoutInflater.from(context);
     }
 
+    /**
+     * @return The number of items, which is cached until the data-set is changed
+     */
     public int getItemCount() {
-        return relation.count();
+        long version;
+        synchronized (this) {
+            if (cachedCount != -1) {
+                countHitCount++;
+                return cachedCount;
+            }
+            countMissCount++;
+            version = dataSetVersion;
+        }
+        int count = relation.count();
+        synchronized (this) {
+            if (version == dataSetVersion) {
+                cachedCount = count;
+                lastLoadedCount = count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of items without blocking, loading it in the IO scheduler of RxJava if needed.
+     *
+     * @return The number of items if loaded, or the last count loaded before the data-set is changed
+     * @see #setLoadCallback(LoadCallback)
+     */
+    @Experimental
+    public int peekItemCount() {
+        final long version;
+        final int lastCount;
+        synchronized (this) {
+            if (cachedCount != -1) {
+                countHitCount++;
+                return cachedCount;
+            }
+            if (countRequested) {
+                return lastLoadedCount;
+            }
+            countMissCount++;
+            countRequested = true;
+            version = dataSetVersion;
+            lastCount = lastLoadedCount;
+        }
+        Schedulers.io().scheduleDirect(new Runnable() {
+            @Override
+            public void run() {
+                int count;
+                try {
+                    count = relation.count();
+                } catch (Exception e) {
+                    Log.w(TAG, "Failed to load the count", e);
+                    synchronized (OrmaAdapter.this) {
+                        countRequested = false;
+                    }
+                    return;
+                }
+                synchronized (OrmaAdapter.this) {
+                    if (version != dataSetVersion) {
+                        return;
+                    }
+                    cachedCount = count;
+                    lastLoadedCount = count;
+                }
+                dispatchCountLoaded(count);
+            }
+        });
+        return lastCount;
     }
 
     @NonNull
@@ -102,14 +285,203 @@ public class OrmaAdapter<Model> {
             throw new NoValueException(
                     "ouf of range: getItem(" + position + ") for the relation with " + getItemCount() + " items");
         }
+        int page = position / pageSize;
+        Model item = cache.get(position);
+        if (item == null) {
+            long version;
+            boolean loading;
+            synchronized (this) {
+                version = dataSetVersion;
+                loading = loadingPages.add(page);
+            }
+            List<Model> items;
+            try {
+                items = loadPage(page, version);
+            } finally {
+                if (loading) {
+                    loadCompleted(page, version);
+                }
+            }
+            int index = position - page * pageSize;
+            item = index < items.size() ? items.get(index) : relation.get(position);
+        }
+        if (position % pageSize >= pageSize / 2) {
+            prefetchPage(page + 1);
+        }
+        return item;
+    }
+
+    /**
+     * Returns an item without blocking, loading the page of it in the IO scheduler of RxJava if needed.
+     * That is, it returns {@code null} as a placeholder for an item not loaded yet, and
+     * {@link LoadCallback#onItemRangeLoaded(int, int)} is called when the item is ready.
+     *
+     * @param position The position of the item
+     * @return The item if loaded, or {@code null}
+     * @see #setLoadCallback(LoadCallback)
+     */
+    @Experimental
+    @Nullable
+    public Model peekItem(int position) {
+        int page = position / pageSize;
         Model item = cache.get(position);
         if (item == null) {
-            item = relation.get(position);
-            cache.put(position, item);
+            prefetchPage(page);
+        }
+        if (position % pageSize >= pageSize / 2) {
+            prefetchPage(page + 1);
         }
         return item;
     }
 
+    /**
+     * Loads a page in one query and caches the items if the data-set is not changed since {@code version}.
+     */
+    @NonNull
+    List<Model> loadPage(int page, long version) {
+        Selector<Model, ?> selector = pageSelector.clone();
+        Model previousTail = page > 0 && keys != null ? pageTails.get(page - 1) : null;
+        if (previousTail != null) {
+            OrmaIterator.appendSeekCondition(selector, keys, previousTail);
+            selector.limit(pageSize);
+        } else {
+            selector.limit(pageSize).offset((long) page * pageSize);
+        }
+        List<Model> items = selector.toList();
+
+        synchronized (this) {
+            if (version == dataSetVersion) {
+                int start = page * pageSize;
+                for (int i = 0; i < items.size(); i++) {
+                    cache.put(start + i, items.get(i));
+                }
+                if (items.size() == pageSize) {
+                    pageTails.put(page, items.get(pageSize - 1));
+                }
+                if (!items.isEmpty()) {
+                    loadedPages.add(page);
+                }
+            }
+        }
+        return items;
+    }
+
+    synchronized void loadCompleted(int page, long version) {
+        if (version == dataSetVersion) {
+            loadingPages.remove(page);
+        }
+    }
+
+    /**
+     * Loads a page in the IO scheduler of RxJava unless it is cached or being loaded.
+     */
+    void prefetchPage(final int page) {
+        final long version;
+        synchronized (this) {
+            if ((long) page * pageSize >= (cachedCount != -1 ? cachedCount : Integer.MAX_VALUE)
+                    || loadedPages.contains(page) || !loadingPages.add(page)) {
+                return;
+            }
+            version = dataSetVersion;
+        }
+        Schedulers.io().scheduleDirect(new Runnable() {
+            @Override
+            public void run() {
+                List<Model> items;
+                try {
+                    items = loadPage(page, version);
+                } catch (Exception e) {
+                    Log.w(TAG, "Failed to prefetch page " + page, e);
+                    return;
+                } finally {
+                    loadCompleted(page, version);
+                }
+                if (!items.isEmpty() && version == getDataSetVersion()) {
+                    dispatchItemRangeLoaded(page * pageSize, items.size());
+                }
+            }
+        });
+    }
+
+    /**
+     * Sets a callback invoked in the main thread when items or the count are loaded in the background.
+     */
+    @Experimental
+    public void setLoadCallback(@Nullable LoadCallback callback) {
+        loadCallback = callback;
+    }
+
+    void dispatchCountLoaded(final int count) {
+        final LoadCallback callback = loadCallback;
+        if (callback == null) {
+            return;
+        }
+        AndroidSchedulers.mainThread().scheduleDirect(new Runnable() {
+            @Override
+            public void run() {
+                callback.onItemCountLoaded(count);
+            }
+        });
+    }
+
+    void dispatchItemRangeLoaded(final int position, final int count) {
+        final LoadCallback callback = loadCallback;
+        if (callback == null) {
+            return;
+        }
+        AndroidSchedulers.mainThread().scheduleDirect(new Runnable() {
+            @Override
+            public void run() {
+                callback.onItemRangeLoaded(position, count);
+            }
+        });
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getCacheSize() {
+        return cache.maxSize();
+    }
+
+    public synchronized long countHitCount() {
+        return countHitCount;
+    }
+
+    public synchronized long countMissCount() {
+        return countMissCount;
+    }
+
+    public long itemHitCount() {
+        return cache.hitCount();
+    }
+
+    public long itemMissCount() {
+        return cache.missCount();
+    }
+
+    @Override
+    public String toString() {
+        return "OrmaAdapter{" +
+                "countHits=" + countHitCount() +
+                ", countMisses=" + countMissCount() +
+                ", itemHits=" + itemHitCount() +
+                ", itemMisses=" + itemMissCount() +
+                '}';
+    }
+
+    /**
+     * A callback for {@link #peekItemCount()} and {@link #peekItem(int)}, invoked in the main thread.
+     */
+    @Experimental
+    public interface LoadCallback {
+
+        void onItemCountLoaded(int count);
+
+        void onItemRangeLoaded(int position, int count);
+    }
+
     @CheckResult
     @NonNull
     public Single<Model> getItemAsSingle(int position) {
@@ -18,10 +18,12 @@ package com.github.gfx.android.orma.widget;
 
 import com.github.gfx.android.orma.Relation;
 import com.github.gfx.android.orma.Selector;
+import com.github.gfx.android.orma.annotation.Experimental;
 
 import android.content.Context;
 import android.support.annotation.CheckResult;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.view.LayoutInflater;
 import android.widget.BaseAdapter;
 
@@ -40,12 +42,40 @@ public abstract class OrmaListAdapter<Model> extends BaseAdapter {
 
     protected final OrmaAdapter<Model> delegate;
 
+    final boolean placeholders;
+
     public OrmaListAdapter(@NonNull Context context, @NonNull Relation<Model, ?> relation) {
         this(new OrmaAdapter<>(context, relation));
     }
 
     public OrmaListAdapter(OrmaAdapter<Model> delegate) {
+        this(delegate, false);
+    }
+
+    /**
+     * @param delegate     The backend adapter
+     * @param placeholders If {@code true}, {@link #getCount()} never blocks and {@link #getItemOrNull(int)}
+     *                     returns {@code null} for the items being loaded in the background,
+     *                     which calls {@link #notifyDataSetChanged()} when loaded.
+     */
+    @Experimental
+    public OrmaListAdapter(OrmaAdapter<Model> delegate, boolean placeholders) {
         this.delegate = delegate;
+        this.placeholders = placeholders;
+
+        if (placeholders) {
+            delegate.setLoadCallback(new OrmaAdapter.LoadCallback() {
+                @Override
+                public void onItemCountLoaded(int count) {
+                    notifyDataSetChanged();
+                }
+
+                @Override
+                public void onItemRangeLoaded(int position, int count) {
+                    notifyDataSetChanged();
+                }
+            });
+        }
 
         delegate.getQueryObservable()
                 .subscribeOn(Schedulers.io())
@@ -60,7 +90,7 @@ public abstract class OrmaListAdapter<Model> extends BaseAdapter {
 
     @Override
     public int getCount() {
-        return delegate.getItemCount();
+        return placeholders ? delegate.peekItemCount() : delegate.getItemCount();
     }
 
     @Override
@@ -69,6 +99,20 @@ public abstract class OrmaListAdapter<Model> extends BaseAdapter {
         return delegate.getItem(position);
     }
 
+    /**
+     * @return The item, or {@code null} as a placeholder if it is being loaded
+     * @see OrmaAdapter#peekItem(int)
+     */
+    @Experimental
+    @Nullable
+    public Model getItemOrNull(int position) {
+        return delegate.peekItem(position);
+    }
+
+    public boolean hasPlaceholders() {
+        return placeholders;
+    }
+
     @Override
     public long getItemId(int position) {
         return 0;
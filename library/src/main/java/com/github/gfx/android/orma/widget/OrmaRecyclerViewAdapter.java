@@ -16,21 +16,33 @@
 
 package com.github.gfx.android.orma.widget;
 
+import com.github.gfx.android.orma.ColumnDef;
 import com.github.gfx.android.orma.Relation;
+import com.github.gfx.android.orma.Schema;
 import com.github.gfx.android.orma.Selector;
+import com.github.gfx.android.orma.annotation.Experimental;
+import com.github.gfx.android.orma.exception.NoValueException;
 
 import android.content.Context;
 import android.support.annotation.CheckResult;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 
 import io.reactivex.Maybe;
+import io.reactivex.Observable;
 import io.reactivex.Single;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
 import io.reactivex.schedulers.Schedulers;
 
 
@@ -42,29 +54,169 @@ import io.reactivex.schedulers.Schedulers;
  */
 public abstract class OrmaRecyclerViewAdapter<Model, VH extends RecyclerView.ViewHolder> extends RecyclerView.Adapter<VH> {
 
+    static final String IMPLICIT_PRIMARY_KEY_NAME = "_rowid_";
+
     protected final OrmaAdapter<Model> delegate;
 
+    final boolean incrementalUpdates;
+
+    @Nullable
+    final List<? extends ColumnDef<Model, ?>> snapshotColumns;
+
+    // the last snapshot notified in the incremental mode, accessed only in the main thread
+    RelationSnapshot snapshot;
+
+    // the items of snapshots keyed by the primary keys, accessed only in the main thread
+    final LruCache<Object, SnapshotItem<Model>> snapshotItems;
+
+    static class SnapshotItem<Model> {
+
+        final int hash;
+
+        final Model model;
+
+        SnapshotItem(int hash, Model model) {
+            this.hash = hash;
+            this.model = model;
+        }
+    }
+
+    static class Update {
+
+        final RelationSnapshot snapshot;
+
+        @Nullable
+        final RelationSnapshot.Diff diff;
+
+        Update(RelationSnapshot snapshot, @Nullable RelationSnapshot.Diff diff) {
+            this.snapshot = snapshot;
+            this.diff = diff;
+        }
+    }
+
     public OrmaRecyclerViewAdapter(@NonNull Context context, @NonNull Relation<Model, ?> relation) {
         this(new OrmaAdapter<>(context, relation));
     }
 
-    @SuppressWarnings("unchecked")
     public OrmaRecyclerViewAdapter(@NonNull OrmaAdapter<Model> delegate) {
+        this(delegate, false);
+    }
+
+    /**
+     * @param delegate           The backend adapter
+     * @param incrementalUpdates If {@code true}, the adapter takes a {@link RelationSnapshot} of the relation
+     *                           in the IO scheduler on each change, and notifies only the ranges of the items that are
+     *                           inserted, removed, or changed, instead of {@link #notifyDataSetChanged()}.
+     *                           Moved items are notified as removed and inserted.
+     *                           {@link #getItemCount()} and {@link #getItem(int)} follow the latest updates notified,
+     *                           not the database. A snapshot reads all the rows of the relation with all the columns
+     *                           except for BLOB columns; use
+     *                           {@link #OrmaRecyclerViewAdapter(OrmaAdapter, boolean, List)} for large relations.
+     *                           The model must have a {@code @PrimaryKey} to load the items notified.
+     * @throws IllegalArgumentException if {@code incrementalUpdates} is {@code true} for a model without
+     *                                  {@code @PrimaryKey}
+     */
+    @Experimental
+    public OrmaRecyclerViewAdapter(@NonNull OrmaAdapter<Model> delegate, boolean incrementalUpdates) {
+        this(delegate, incrementalUpdates, null);
+    }
+
+    /**
+     * @param delegate           The backend adapter
+     * @param incrementalUpdates If {@code true}, the adapter updates the views incrementally as
+     *                           {@link #OrmaRecyclerViewAdapter(OrmaAdapter, boolean)} does.
+     * @param snapshotColumns    The columns read and hashed for each row on each change to detect changed items,
+     *                           e.g. a version column, or {@code null} for all the columns except for BLOB columns.
+     *                           The cost of a snapshot is proportional to the number of rows times the size of them.
+     * @throws IllegalArgumentException if {@code incrementalUpdates} is {@code true} for a model without
+     *                                  {@code @PrimaryKey}
+     * @see RelationSnapshot#take(Selector, List)
+     */
+    @Experimental
+    public OrmaRecyclerViewAdapter(@NonNull OrmaAdapter<Model> delegate, boolean incrementalUpdates,
+            @Nullable List<? extends ColumnDef<Model, ?>> snapshotColumns) {
+        if (incrementalUpdates) {
+            checkPrimaryKey(delegate.getRelation().getSchema());
+        }
         this.delegate = delegate;
-        delegate.getQueryObservable()
-                .subscribeOn(Schedulers.io())
+        this.incrementalUpdates = incrementalUpdates;
+        this.snapshotColumns = snapshotColumns;
+        this.snapshotItems = new LruCache<>(delegate.getCacheSize());
+        if (incrementalUpdates) {
+            subscribeSnapshots();
+        } else {
+            delegate.getQueryObservable()
+                    .subscribeOn(Schedulers.io())
+                    .observeOn(AndroidSchedulers.mainThread())
+                    .subscribe(new Consumer<Selector<Model, ?>>() {
+                        @Override
+                        public void accept(Selector<Model, ?> selector) throws Exception {
+                            notifyDataSetChanged();
+                        }
+                    });
+        }
+    }
+
+    static void checkPrimaryKey(@NonNull Schema<?> schema) {
+        // models without @PrimaryKey have the implicit _rowid_, which is not a column of them
+        if (IMPLICIT_PRIMARY_KEY_NAME.equals(schema.getPrimaryKey().name)) {
+            throw new IllegalArgumentException("Missing @PrimaryKey definition for incremental updates of "
+                    + schema.getModelClass().getName());
+        }
+    }
+
+    private void subscribeSnapshots() {
+        Observable.<Selector<Model, ?>>just(delegate.getRelation().selector())
+                .concatWith(delegate.getQueryObservable())
+                .observeOn(Schedulers.io())
+                .map(new Function<Selector<Model, ?>, Update>() {
+
+                    RelationSnapshot lastSnapshot; // accessed only in the IO scheduler
+
+                    @Override
+                    public Update apply(Selector<Model, ?> selector) throws Exception {
+                        RelationSnapshot snapshot = RelationSnapshot.take(selector, snapshotColumns);
+                        RelationSnapshot.Diff diff = lastSnapshot != null ? RelationSnapshot.diff(lastSnapshot, snapshot) : null;
+                        lastSnapshot = snapshot;
+                        return new Update(snapshot, diff);
+                    }
+                })
                 .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(new Consumer<Selector<Model, ?>>() {
+                .subscribe(new Consumer<Update>() {
                     @Override
-                    public void accept(Selector<Model, ?> selector) throws Exception {
-                        notifyDataSetChanged();
+                    public void accept(Update update) throws Exception {
+                        snapshot = update.snapshot;
+                        if (update.diff != null) {
+                            update.diff.dispatchUpdatesTo(new RelationSnapshot.UpdateCallback() {
+                                @Override
+                                public void onInserted(int position, int count) {
+                                    notifyItemRangeInserted(position, count);
+                                }
+
+                                @Override
+                                public void onRemoved(int position, int count) {
+                                    notifyItemRangeRemoved(position, count);
+                                }
+
+                                @Override
+                                public void onChanged(int position, int count) {
+                                    notifyItemRangeChanged(position, count);
+                                }
+                            });
+                        } else if (snapshot.size() != delegate.getItemCount()) {
+                            notifyDataSetChanged();
+                        }
                     }
                 });
     }
 
+    public boolean isIncrementalUpdatesEnabled() {
+        return incrementalUpdates;
+    }
+
     @Override
     public int getItemCount() {
-        return delegate.getItemCount();
+        return snapshot != null ? snapshot.size() : delegate.getItemCount();
     }
 
     @NonNull
@@ -82,9 +234,58 @@ public abstract class OrmaRecyclerViewAdapter<Model, VH extends RecyclerView.Vie
         return delegate.getRelation();
     }
 
+    /**
+     * In the incremental mode, it returns the item at {@code position} in the latest updates notified, loading it by
+     * the primary key. Items already loaded are kept until the updates of them are notified, even if they are deleted
+     * from the database.
+     */
     @NonNull
     public Model getItem(int position) {
-        return delegate.getItem(position);
+        if (snapshot == null) {
+            return delegate.getItem(position);
+        }
+        Object key = snapshot.keys[position];
+        SnapshotItem<Model> item = snapshotItems.get(key);
+        if (item == null || item.hash != snapshot.hashes[position]) {
+            loadSnapshotItems(position - position % delegate.getPageSize());
+            SnapshotItem<Model> loaded = snapshotItems.get(key);
+            if (loaded != null) {
+                item = loaded;
+            } else if (item == null) {
+                throw new NoValueException("The item at " + position + " has been removed from the relation"
+                        + " before it is loaded");
+            }
+        }
+        return item.model;
+    }
+
+    /**
+     * Loads the items of the snapshot in a page by the primary keys.
+     */
+    void loadSnapshotItems(int start) {
+        int end = Math.min(start + delegate.getPageSize(), snapshot.size());
+        Map<Object, Integer> positions = new HashMap<>();
+        StringBuilder clause = new StringBuilder();
+        Relation<Model, ?> relation = delegate.getRelation();
+        ColumnDef<Model, ?> primaryKey = relation.getSchema().getPrimaryKey();
+        clause.append(primaryKey.getQualifiedName());
+        clause.append(" IN (");
+        for (int i = start; i < end; i++) {
+            positions.put(snapshot.keys[i], i);
+            clause.append(i == start ? "?" : ", ?");
+        }
+        clause.append(')');
+
+        List<Model> models = relation.selector()
+                .where(clause, Arrays.asList(snapshot.keys).subList(start, end))
+                .toList();
+        for (Model model : models) {
+            Object key = RelationSnapshot.toKey(primaryKey.getSerialized(model));
+            Integer position = positions.get(key);
+            if (position != null) {
+                snapshotItems.put(key, new SnapshotItem<>(snapshot.hashes[position], model));
+            }
+        }
     }
 
     /**
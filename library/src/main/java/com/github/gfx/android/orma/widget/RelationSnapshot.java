@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gfx.android.orma.widget;
+
+import com.github.gfx.android.orma.ColumnDef;
+import com.github.gfx.android.orma.Schema;
+import com.github.gfx.android.orma.Selector;
+import com.github.gfx.android.orma.annotation.Experimental;
+
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A snapshot of a query result, which holds the primary key and a hash of the columns of each row.
+ * Two snapshots of the same query are compared by {@link #diff(RelationSnapshot, RelationSnapshot)} to update
+ * views incrementally.
+ */
+@Experimental
+public class RelationSnapshot {
+
+    final Object[] keys;
+
+    final int[] hashes;
+
+    RelationSnapshot(@NonNull Object[] keys, @NonNull int[] hashes) {
+        this.keys = keys;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Takes a snapshot of {@code selector} with all the columns of the model except for BLOB columns.
+     *
+     * @param selector The query to take the snapshot of
+     * @return A new snapshot
+     * @see #take(Selector, List)
+     */
+    @WorkerThread
+    @NonNull
+    public static <Model> RelationSnapshot take(@NonNull Selector<Model, ?> selector) {
+        return take(selector, null);
+    }
+
+    /**
+     * Takes a snapshot of {@code selector}. It reads the primary key and {@code columns} of all the rows but does
+     * not create models, so the cost is proportional to the number of rows times the size of the columns.
+     * A version or updated-at column, if the model has one, is enough to detect changes with much less I/O.
+     *
+     * @param selector The query to take the snapshot of
+     * @param columns  The columns to detect changes by, or {@code null} for all the columns except for BLOB columns.
+     *                 Changes in the other columns are not notified.
+     * @return A new snapshot
+     */
+    @WorkerThread
+    @NonNull
+    public static <Model> RelationSnapshot take(@NonNull Selector<Model, ?> selector,
+            @Nullable List<? extends ColumnDef<Model, ?>> columns) {
+        Schema<Model> schema = selector.getSchema();
+        List<String> resultColumns = new ArrayList<>();
+        resultColumns.add(schema.getPrimaryKey().getQualifiedName());
+        for (ColumnDef<Model, ?> column : columns != null ? columns : schema.getColumns()) {
+            if (columns == null && (column.isPrimaryKey() || "BLOB".equalsIgnoreCase(column.storageType))) {
+                continue;
+            }
+            resultColumns.add(column.getQualifiedName());
+        }
+
+        Cursor cursor = selector.executeWithColumns(resultColumns.toArray(new String[resultColumns.size()]));
+        try {
+            int count = cursor.getCount();
+            Object[] keys = new Object[count];
+            int[] hashes = new int[count];
+            for (int pos = 0; cursor.moveToPosition(pos); pos++) {
+                keys[pos] = cursor.getType(0) == Cursor.FIELD_TYPE_INTEGER ? cursor.getLong(0) : cursor.getString(0);
+                hashes[pos] = hashRow(cursor, 1, resultColumns.size());
+            }
+            return new RelationSnapshot(keys, hashes);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * @return The key of a row in the same form as {@link #take(Selector, List)} reads, from a serialized primary key
+     */
+    @NonNull
+    static Object toKey(@NonNull Object serializedPrimaryKey) {
+        if (serializedPrimaryKey instanceof Long || serializedPrimaryKey instanceof Integer
+                || serializedPrimaryKey instanceof Short || serializedPrimaryKey instanceof Byte) {
+            return ((Number) serializedPrimaryKey).longValue();
+        }
+        return serializedPrimaryKey.toString();
+    }
+
+    static int hashRow(Cursor cursor, int start, int end) {
+        int hash = 1;
+        for (int i = start; i < end; i++) {
+            int h;
+            switch (cursor.getType(i)) {
+                case Cursor.FIELD_TYPE_INTEGER:
+                    long l = cursor.getLong(i);
+                    h = (int) (l ^ (l >>> 32));
+                    break;
+                case Cursor.FIELD_TYPE_FLOAT:
+                    long bits = Double.doubleToLongBits(cursor.getDouble(i));
+                    h = (int) (bits ^ (bits >>> 32));
+                    break;
+                case Cursor.FIELD_TYPE_STRING:
+                    h = cursor.getString(i).hashCode();
+                    break;
+                case Cursor.FIELD_TYPE_BLOB:
+                    h = Arrays.hashCode(cursor.getBlob(i));
+                    break;
+                default: // NULL
+                    h = 0;
+            }
+            hash = 31 * hash + h;
+        }
+        return hash;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Computes the updates from {@code oldSnapshot} to {@code newSnapshot}: rows removed, rows inserted, and rows of
+     * which the columns have changed. Rows are identified by their primary keys.
+     * Rows moved to other positions are reported as removed from the old positions and inserted into the new ones,
+     * where the rows kept in place are the longest run of rows in the same order in both snapshots.
+     * It runs in {@code O(N log N)} with {@code N} the number of rows in the two snapshots.
+     *
+     * @return The updates
+     */
+    @NonNull
+    public static Diff diff(@NonNull RelationSnapshot oldSnapshot, @NonNull RelationSnapshot newSnapshot) {
+        Map<Object, Integer> newPositions = new HashMap<>(newSnapshot.keys.length * 2);
+        for (int i = 0; i < newSnapshot.keys.length; i++) {
+            newPositions.put(newSnapshot.keys[i], i);
+        }
+
+        // the new positions of the old rows, or -1 for removed rows
+        int[] oldToNew = new int[oldSnapshot.keys.length];
+        // the new positions of the retained rows in the old order
+        int[] retained = new int[oldSnapshot.keys.length];
+        int retainedCount = 0;
+        for (int i = 0; i < oldSnapshot.keys.length; i++) {
+            Integer newPosition = newPositions.get(oldSnapshot.keys[i]);
+            oldToNew[i] = newPosition != null ? newPosition : -1;
+            if (newPosition != null) {
+                retained[retainedCount++] = newPosition;
+            }
+        }
+        boolean[] stays = longestIncreasingSubsequence(retained, retainedCount, newSnapshot.keys.length);
+
+        Diff diff = new Diff();
+        int[] oldPositions = new int[newSnapshot.keys.length];
+        Arrays.fill(oldPositions, -1);
+
+        // removals are dispatched from the bottom so that the positions of the other rows are not affected
+        for (int i = oldSnapshot.keys.length - 1; i >= 0; i--) {
+            if (oldToNew[i] != -1 && stays[oldToNew[i]]) {
+                oldPositions[oldToNew[i]] = i;
+            } else {
+                diff.add(Diff.REMOVED, i);
+            }
+        }
+
+        // now the list consists of the retained rows, so insertions at the new positions are dispatched from the top
+        for (int i = 0; i < newSnapshot.keys.length; i++) {
+            if (oldPositions[i] == -1) {
+                diff.add(Diff.INSERTED, i);
+            }
+        }
+
+        for (int i = 0; i < newSnapshot.keys.length; i++) {
+            if (oldPositions[i] != -1 && oldSnapshot.hashes[oldPositions[i]] != newSnapshot.hashes[i]) {
+                diff.add(Diff.CHANGED, i);
+            }
+        }
+        return diff;
+    }
+
+    /**
+     * @return Flags indexed by the values of {@code values[0, count)}, set for the values in the longest strictly
+     * increasing subsequence of them
+     */
+    static boolean[] longestIncreasingSubsequence(int[] values, int count, int maxValue) {
+        int[] tails = new int[count]; // the indexes of the smallest tails of the subsequences of each length
+        int[] previous = new int[count];
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[tails[mid]] < values[i]) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+
+        boolean[] flags = new boolean[maxValue];
+        for (int i = length > 0 ? tails[length - 1] : -1; i != -1; i = previous[i]) {
+            flags[values[i]] = true;
+        }
+        return flags;
+    }
+
+    /**
+     * A receiver of the updates, which is compatible with {@code ListUpdateCallback} of RecyclerView.
+     */
+    public interface UpdateCallback {
+
+        void onInserted(int position, int count);
+
+        void onRemoved(int position, int count);
+
+        void onChanged(int position, int count);
+    }
+
+    /**
+     * A list of updates between two snapshots, where consecutive updates of the same kind are merged into a range.
+     */
+    public static class Diff {
+
+        static final int INSERTED = 0;
+
+        static final int REMOVED = 1;
+
+        static final int CHANGED = 2;
+
+        // triples of (operation, position, count)
+        int[] ops = new int[3 * 4];
+
+        int size = 0;
+
+        void add(int op, int position) {
+            if (size != 0 && ops[size - 3] == op) {
+                int lastPosition = ops[size - 3 + 1];
+                int lastCount = ops[size - 3 + 2];
+                if (op == REMOVED && position == lastPosition - 1) {
+                    ops[size - 3 + 1] = position;
+                    ops[size - 3 + 2] = lastCount + 1;
+                    return;
+                } else if (op != REMOVED && position == lastPosition + lastCount) {
+                    ops[size - 3 + 2] = lastCount + 1;
+                    return;
+                }
+            }
+            if (size == ops.length) {
+                ops = Arrays.copyOf(ops, ops.length * 2);
+            }
+            ops[size++] = op;
+            ops[size++] = position;
+            ops[size++] = 1;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public void dispatchUpdatesTo(@NonNull UpdateCallback callback) {
+            for (int i = 0; i < size; i += 3) {
+                switch (ops[i]) {
+                    case INSERTED:
+                        callback.onInserted(ops[i + 1], ops[i + 2]);
+                        break;
+                    case REMOVED:
+                        callback.onRemoved(ops[i + 1], ops[i + 2]);
+                        break;
+                    case CHANGED:
+                        callback.onChanged(ops[i + 1], ops[i + 2]);
+                        break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma.test;
+
+import com.github.gfx.android.orma.OrmaConnection;
+import com.github.gfx.android.orma.test.model.OrmaDatabase;
+import com.github.gfx.android.orma.test.toolbox.OrmaFactory;
+
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Looper;
+import android.support.test.runner.AndroidJUnit4;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Measures the overhead of {@link OrmaConnection#getReadableDatabase()} and
+ * {@link OrmaConnection#getWritableDatabase()} under contention, compared to the former accessors that took the
+ * connection monitor and {@link Looper#getMainLooper()} on every call, and the overhead of a query.
+ * It is a benchmark that only prints the timings, so it is ignored in test runs; remove {@code @Ignore} to run it.
+ */
+@Ignore("benchmark")
+@RunWith(AndroidJUnit4.class)
+public class ConnectionContentionBenchmark {
+
+    static final int THREADS = 8;
+
+    static final int ITERATIONS = 20000;
+
+    OrmaDatabase db;
+
+    OrmaConnection conn;
+
+    interface Accessor {
+
+        SQLiteDatabase access();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        db = OrmaFactory.create();
+        db.migrate();
+        conn = db.getConnection();
+    }
+
+    @Test
+    public void compareAccessors() throws Exception {
+        Accessor monitor = new Accessor() {
+            @Override
+            public SQLiteDatabase access() {
+                synchronized (conn) {
+                    if (Looper.getMainLooper().getThread() == Thread.currentThread()) {
+                        throw new AssertionError("main thread");
+                    }
+                    return conn.getReadableDatabase();
+                }
+            }
+        };
+        Accessor lockFree = new Accessor() {
+            @Override
+            public SQLiteDatabase access() {
+                return conn.getReadableDatabase();
+            }
+        };
+
+        // warm up
+        run(monitor);
+        run(lockFree);
+
+        long before = run(monitor);
+        long after = run(lockFree);
+
+        System.out.println("[" + getClass().getSimpleName() + "] " + THREADS + " threads: "
+                + "monitor " + (before / ITERATIONS) + "ns/op, lock-free " + (after / ITERATIONS) + "ns/op");
+    }
+
+    @Test
+    public void queriesUnderContention() throws Exception {
+        Accessor query = new Accessor() {
+            @Override
+            public SQLiteDatabase access() {
+                db.selectFromAuthor().count();
+                return conn.getReadableDatabase();
+            }
+        };
+
+        run(query); // warm up
+        long elapsed = run(query);
+
+        System.out.println("[" + getClass().getSimpleName() + "] " + THREADS + " threads: "
+                + "count() " + (elapsed / ITERATIONS) + "ns/op");
+    }
+
+    @Test
+    public void writableDatabaseUnderContention() throws Exception {
+        run(new Accessor() {
+            @Override
+            public SQLiteDatabase access() {
+                return conn.getWritableDatabase();
+            }
+        });
+    }
+
+    /**
+     * @return The elapsed time in nanoseconds per thread
+     */
+    long run(final Accessor accessor) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(THREADS);
+        final AtomicInteger count = new AtomicInteger();
+
+        for (int i = 0; i < THREADS; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < ITERATIONS; j++) {
+                            if (accessor.access() != null) {
+                                count.incrementAndGet();
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        finish.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        long t0 = System.nanoTime();
+        start.countDown();
+        finish.await();
+        long elapsed = System.nanoTime() - t0;
+
+        assertThat(count.get(), is(THREADS * ITERATIONS));
+        return elapsed;
+    }
+}
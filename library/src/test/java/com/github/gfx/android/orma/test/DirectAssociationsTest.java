@@ -18,9 +18,12 @@ package com.github.gfx.android.orma.test;
 
 import com.github.gfx.android.orma.Inserter;
 import com.github.gfx.android.orma.ModelFactory;
+import com.github.gfx.android.orma.Projection;
+import com.github.gfx.android.orma.Tuple;
 import com.github.gfx.android.orma.test.model.Author;
 import com.github.gfx.android.orma.test.model.ModelWithDirectAssociation;
 import com.github.gfx.android.orma.test.model.ModelWithDirectAssociation2;
+import com.github.gfx.android.orma.test.model.ModelWithDirectAssociation_Schema;
 import com.github.gfx.android.orma.test.model.ModelWithDirectAssociation_Selector;
 import com.github.gfx.android.orma.test.model.ModelWithMoreNestedDirectAssociations;
 import com.github.gfx.android.orma.test.model.ModelWithNestedDirectAssociations;
@@ -518,4 +521,41 @@ public class DirectAssociationsTest {
         assertThat(model.author.note, is(author1.note));
     }
 
+    @Test
+    public void testSelectWithoutJoins() throws Exception {
+        orma.createModelWithDirectAssociation(new ModelFactory<ModelWithDirectAssociation>() {
+            @NonNull
+            @Override
+            public ModelWithDirectAssociation call() {
+                ModelWithDirectAssociation model = new ModelWithDirectAssociation();
+                model.name = "foo";
+                model.author = author1;
+                model.publisher = publisher;
+                model.note = "SQLite rocks";
+                return model;
+            }
+        });
+        ModelWithDirectAssociation_Schema schema = ModelWithDirectAssociation_Schema.INSTANCE;
+
+        Projection<ModelWithDirectAssociation> projection = orma.selectFromModelWithDirectAssociation()
+                .select(schema.name, schema.note);
+        assertThat(projection.buildQuery(), not(containsString("JOIN")));
+        Tuple<ModelWithDirectAssociation> tuple = projection.toList().get(0);
+        assertThat(tuple.get(schema.name), is("foo"));
+        assertThat(tuple.get(schema.note), is("SQLite rocks"));
+
+        projection = orma.selectFromModelWithDirectAssociation()
+                .where(schema.author.associationSchema.note.getQualifiedName() + " = ?", author1.note)
+                .select(schema.name);
+        assertThat(projection.buildQuery(), containsString("JOIN"));
+        assertThat(projection.toList(), hasSize(1));
+
+        projection = orma.selectFromModelWithDirectAssociation()
+                .select(schema.name, schema.author, schema.note);
+        assertThat(projection.buildQuery(), containsString("JOIN"));
+        tuple = projection.toList().get(0);
+        assertThat(tuple.get(schema.name), is("foo"));
+        assertThat(tuple.get(schema.author).note, is(author1.note));
+        assertThat(tuple.get(schema.note), is("SQLite rocks"));
+    }
 }
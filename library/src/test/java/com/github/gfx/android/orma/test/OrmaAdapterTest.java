@@ -16,13 +16,17 @@
 
 package com.github.gfx.android.orma.test;
 
+import com.github.gfx.android.orma.ColumnDef;
 import com.github.gfx.android.orma.Inserter;
 import com.github.gfx.android.orma.ModelFactory;
 import com.github.gfx.android.orma.Relation;
 import com.github.gfx.android.orma.test.model.Author;
+import com.github.gfx.android.orma.test.model.ModelWithBlob;
 import com.github.gfx.android.orma.test.model.OrmaDatabase;
 import com.github.gfx.android.orma.test.toolbox.OrmaFactory;
 import com.github.gfx.android.orma.widget.OrmaAdapter;
+import com.github.gfx.android.orma.widget.OrmaRecyclerViewAdapter;
+import com.github.gfx.android.orma.widget.RelationSnapshot;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -32,9 +36,21 @@ import android.content.Context;
 import android.support.annotation.NonNull;
 import android.support.test.InstrumentationRegistry;
 import android.support.test.runner.AndroidJUnit4;
+import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
+import android.view.ViewGroup;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.reactivex.Scheduler;
+import io.reactivex.android.plugins.RxAndroidPlugins;
+import io.reactivex.functions.Function;
 import io.reactivex.functions.Predicate;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.schedulers.TestScheduler;
 
 import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
@@ -117,6 +133,288 @@ public class OrmaAdapterTest {
         assertThat(adapter.getItemCount(), is(3));
     }
 
+    @Test
+    public void testCachedCountAndItems() throws Exception {
+        assertThat(adapter.getItemCount(), is(3));
+        assertThat(adapter.getItemCount(), is(3));
+        assertThat(adapter.countMissCount(), is(1L));
+        assertThat(adapter.countHitCount(), is(1L));
+
+        assertThat(adapter.getItem(0).name, is("A"));
+        assertThat(adapter.getItem(0).name, is("A"));
+        assertThat(adapter.itemMissCount(), is(1L));
+        assertThat(adapter.itemHitCount(), is(1L));
+
+        long version = adapter.getDataSetVersion();
+        db.updateAuthor()
+                .nameEq("A")
+                .name("D")
+                .execute();
+        assertThat(adapter.getDataSetVersion(), is(greaterThan(version)));
+
+        assertThat(adapter.getItemCount(), is(3));
+        assertThat(adapter.countMissCount(), is(2L));
+        assertThat(adapter.getItem(0).name, is("B"));
+        assertThat(adapter.itemMissCount(), is(2L));
+    }
+
+    @Test
+    public void testPagesAndPrefetch() throws Exception {
+        final TestScheduler scheduler = new TestScheduler();
+        RxJavaPlugins.setIoSchedulerHandler(new Function<Scheduler, Scheduler>() {
+            @Override
+            public Scheduler apply(Scheduler s) throws Exception {
+                return scheduler;
+            }
+        });
+        try {
+            OrmaAdapter<Author> adapter = new OrmaAdapter<>(getContext(), db.relationOfAuthor().orderByNameAsc(), 8, 2);
+            assertThat(adapter.getCacheSize(), is(8));
+            assertThat(adapter.getPageSize(), is(2));
+
+            assertThat(adapter.getItem(0).name, is("A"));
+            assertThat(adapter.getItem(1).name, is("B"));
+            assertThat(adapter.itemMissCount(), is(1L));
+            assertThat(adapter.itemHitCount(), is(1L));
+
+            scheduler.triggerActions(); // prefetches the page with C and Z
+            assertThat(adapter.getItem(2).name, is("C"));
+            assertThat(adapter.getItem(3).name, is("Z"));
+            assertThat(adapter.itemMissCount(), is(1L));
+            assertThat(adapter.itemHitCount(), is(3L));
+        } finally {
+            RxJavaPlugins.reset();
+        }
+    }
+
+    @Test
+    public void testPrefetchPagesEvictedFromCache() throws Exception {
+        final TestScheduler scheduler = new TestScheduler();
+        RxJavaPlugins.setIoSchedulerHandler(new Function<Scheduler, Scheduler>() {
+            @Override
+            public Scheduler apply(Scheduler s) throws Exception {
+                return scheduler;
+            }
+        });
+        try {
+            OrmaAdapter<Author> adapter = new OrmaAdapter<>(getContext(), db.relationOfAuthor().orderByNameAsc(), 2, 2);
+
+            assertThat(adapter.getItem(0).name, is("A"));
+            assertThat(adapter.getItem(1).name, is("B"));
+            scheduler.triggerActions(); // prefetches the page with C and Z, which evicts A and B
+            assertThat(adapter.getItem(2).name, is("C"));
+            assertThat(adapter.itemMissCount(), is(1L));
+
+            assertThat(adapter.getItem(0).name, is("A")); // reloads the page, which evicts C and Z
+            assertThat(adapter.getItem(1).name, is("B"));
+            assertThat(adapter.itemMissCount(), is(2L));
+
+            scheduler.triggerActions(); // prefetches the evicted page again
+            assertThat(adapter.getItem(2).name, is("C"));
+            assertThat(adapter.getItem(3).name, is("Z"));
+            assertThat(adapter.itemMissCount(), is(2L));
+        } finally {
+            RxJavaPlugins.reset();
+        }
+    }
+
+    @Test
+    public void testPeekItemsWithPlaceholders() throws Exception {
+        final TestScheduler scheduler = new TestScheduler();
+        RxJavaPlugins.setIoSchedulerHandler(new Function<Scheduler, Scheduler>() {
+            @Override
+            public Scheduler apply(Scheduler s) throws Exception {
+                return scheduler;
+            }
+        });
+        RxAndroidPlugins.setMainThreadSchedulerHandler(new Function<Scheduler, Scheduler>() {
+            @Override
+            public Scheduler apply(Scheduler s) throws Exception {
+                return Schedulers.trampoline();
+            }
+        });
+        try {
+            OrmaAdapter<Author> adapter = new OrmaAdapter<>(getContext(), db.relationOfAuthor().orderByNameAsc(), 8, 2);
+            final List<String> loaded = new ArrayList<>();
+            adapter.setLoadCallback(new OrmaAdapter.LoadCallback() {
+                @Override
+                public void onItemCountLoaded(int count) {
+                    loaded.add("count=" + count);
+                }
+
+                @Override
+                public void onItemRangeLoaded(int position, int count) {
+                    loaded.add("items " + position + "+" + count);
+                }
+            });
+
+            assertThat(adapter.peekItemCount(), is(0));
+            assertThat(adapter.peekItem(0), is(nullValue()));
+            scheduler.triggerActions();
+            assertThat(loaded, contains("count=4", "items 0+2"));
+            assertThat(adapter.peekItemCount(), is(4));
+            assertThat(adapter.peekItem(0).name, is("A"));
+
+            db.deleteFromAuthor().nameEq("A").execute();
+            assertThat(adapter.peekItemCount(), is(4)); // until the new count is loaded
+            assertThat(adapter.peekItem(0), is(nullValue()));
+            scheduler.triggerActions();
+            assertThat(adapter.peekItemCount(), is(3));
+            assertThat(adapter.peekItem(0).name, is("B"));
+        } finally {
+            RxJavaPlugins.reset();
+            RxAndroidPlugins.reset();
+        }
+    }
+
+    @Test
+    public void testPeekItemsBeyondCacheAndBack() throws Exception {
+        final TestScheduler scheduler = new TestScheduler();
+        RxJavaPlugins.setIoSchedulerHandler(new Function<Scheduler, Scheduler>() {
+            @Override
+            public Scheduler apply(Scheduler s) throws Exception {
+                return scheduler;
+            }
+        });
+        RxAndroidPlugins.setMainThreadSchedulerHandler(new Function<Scheduler, Scheduler>() {
+            @Override
+            public Scheduler apply(Scheduler s) throws Exception {
+                return Schedulers.trampoline();
+            }
+        });
+        try {
+            OrmaAdapter<Author> adapter = new OrmaAdapter<>(getContext(), db.relationOfAuthor().orderByNameAsc(), 2, 1);
+
+            // scrolls down beyond the cache, which evicts A
+            for (int position = 0; position < 4; position++) {
+                adapter.peekItem(position);
+                scheduler.triggerActions();
+            }
+            assertThat(adapter.peekItem(3).name, is("Z"));
+
+            // and scrolls back
+            assertThat(adapter.peekItem(0), is(nullValue()));
+            scheduler.triggerActions();
+            assertThat(adapter.peekItem(0).name, is("A"));
+        } finally {
+            RxJavaPlugins.reset();
+            RxAndroidPlugins.reset();
+        }
+    }
+
+    @Test
+    public void testSnapshotDiff() throws Exception {
+        Relation<Author, ?> relation = db.relationOfAuthor().noteIsNotNull().orderByNameAsc();
+        RelationSnapshot before = RelationSnapshot.take(relation.selector()); // A, B, C
+        assertThat(before.size(), is(3));
+
+        db.deleteFromAuthor().nameEq("B").execute();
+        db.updateAuthor().nameEq("C").note("updated").execute();
+        db.updateAuthor().nameEq("Z").note("qux").execute();
+        RelationSnapshot after = RelationSnapshot.take(relation.selector()); // A, C, Z
+        assertThat(after.size(), is(3));
+
+        final List<String> updates = new ArrayList<>();
+        RelationSnapshot.UpdateCallback callback = new RelationSnapshot.UpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                updates.add("inserted " + position + "+" + count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                updates.add("removed " + position + "+" + count);
+            }
+
+            @Override
+            public void onChanged(int position, int count) {
+                updates.add("changed " + position + "+" + count);
+            }
+        };
+        RelationSnapshot.diff(before, after).dispatchUpdatesTo(callback);
+        assertThat(updates, contains("removed 1+1", "inserted 2+1", "changed 1+1"));
+
+        assertThat(RelationSnapshot.diff(after, after).isEmpty(), is(true));
+
+        List<ColumnDef<Author, ?>> noColumns = Collections.emptyList();
+        RelationSnapshot keysOnly = RelationSnapshot.take(relation.selector(), noColumns);
+        db.updateAuthor().nameEq("C").note("updated again").execute();
+        assertThat(RelationSnapshot.diff(keysOnly, RelationSnapshot.take(relation.selector(), noColumns)).isEmpty(),
+                is(true));
+
+        RelationSnapshot reversed = RelationSnapshot.take(db.relationOfAuthor().noteIsNotNull().orderByNameDesc().selector());
+        updates.clear();
+        RelationSnapshot.diff(after, reversed).dispatchUpdatesTo(callback); // A, C, Z -> Z, C, A
+        assertThat(updates, contains("removed 0+2", "inserted 1+2"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIncrementalUpdatesRequirePrimaryKey() throws Exception {
+        new OrmaRecyclerViewAdapter<ModelWithBlob, RecyclerView.ViewHolder>(
+                new OrmaAdapter<>(getContext(), db.relationOfModelWithBlob()), true) {
+            @Override
+            public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Test
+    public void testGetItemBeforeIncrementalUpdatesDelivered() throws Exception {
+        final TestScheduler scheduler = new TestScheduler();
+        RxJavaPlugins.setIoSchedulerHandler(new Function<Scheduler, Scheduler>() {
+            @Override
+            public Scheduler apply(Scheduler s) throws Exception {
+                return scheduler;
+            }
+        });
+        RxAndroidPlugins.setMainThreadSchedulerHandler(new Function<Scheduler, Scheduler>() {
+            @Override
+            public Scheduler apply(Scheduler s) throws Exception {
+                return Schedulers.trampoline();
+            }
+        });
+        try {
+            OrmaAdapter<Author> delegate = new OrmaAdapter<>(getContext(),
+                    db.relationOfAuthor().noteIsNotNull().orderByNameAsc());
+            OrmaRecyclerViewAdapter<Author, RecyclerView.ViewHolder> adapter
+                    = new OrmaRecyclerViewAdapter<Author, RecyclerView.ViewHolder>(delegate, true) {
+                @Override
+                public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+                }
+            };
+            scheduler.triggerActions();
+            assertThat(adapter.getItemCount(), is(3));
+            assertThat(adapter.getItem(2).name, is("C"));
+
+            db.deleteFromAuthor().nameEq("C").execute();
+            assertThat(adapter.getItemCount(), is(3)); // until the update is delivered
+            assertThat(adapter.getItem(2).name, is("C"));
+
+            scheduler.triggerActions();
+            assertThat(adapter.getItemCount(), is(2));
+            assertThat(adapter.getItem(1).name, is("B"));
+
+            db.updateAuthor().nameEq("B").note("updated").execute();
+            assertThat(adapter.getItem(1).note, is("bar"));
+            scheduler.triggerActions();
+            assertThat(adapter.getItem(1).note, is("updated"));
+        } finally {
+            RxJavaPlugins.reset();
+            RxAndroidPlugins.reset();
+        }
+    }
+
     @Test
     public void testGetRelation() throws Exception {
         assertThat(adapter.getRelation(), is(instanceOf(Relation.class)));
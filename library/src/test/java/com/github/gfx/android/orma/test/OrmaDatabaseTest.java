@@ -16,7 +16,12 @@
 package com.github.gfx.android.orma.test;
 
 import com.github.gfx.android.orma.AccessThreadConstraint;
+import com.github.gfx.android.orma.Inserter;
 import com.github.gfx.android.orma.ModelFactory;
+import com.github.gfx.android.orma.OrmaConnection;
+import com.github.gfx.android.orma.QueryEvent;
+import com.github.gfx.android.orma.QueryListener;
+import com.github.gfx.android.orma.StatementCache;
 import com.github.gfx.android.orma.test.database_package_test.OrmaDatabaseInAnotherPackage;
 import com.github.gfx.android.orma.test.model.Author;
 import com.github.gfx.android.orma.test.model.OrmaDatabase;
@@ -35,6 +40,12 @@ import android.support.annotation.NonNull;
 import android.support.test.InstrumentationRegistry;
 import android.support.test.runner.AndroidJUnit4;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
 
@@ -153,6 +164,245 @@ public class OrmaDatabaseTest {
         assertThat(isForeignKeyEnabled(db), is(false));
     }
 
+    @Test
+    public void testStatementCache() throws Exception {
+        OrmaDatabase db = OrmaDatabase.builder(getContext())
+                .name(NAME)
+                .tryParsingSql(false)
+                .build();
+
+        StatementCache cache = db.getConnection().getStatementCache();
+        assertThat(cache.maxSize(), is(StatementCache.DEFAULT_MAX_SIZE));
+
+        db.insertIntoAuthor(Author.create("foo"));
+        db.insertIntoAuthor(Author.create("bar"));
+        db.deleteFromAuthor().nameEq("foo").execute();
+        db.deleteFromAuthor().nameEq("bar").execute();
+
+        assertThat(cache.size(), is(2));
+        assertThat(cache.missCount(), is(2L));
+        assertThat(cache.hitCount(), is(2L));
+        assertThat(db.selectFromAuthor().count(), is(0));
+    }
+
+    @Test
+    public void testStatementCacheDisabled() throws Exception {
+        OrmaDatabase db = OrmaDatabase.builder(getContext())
+                .name(NAME)
+                .statementCacheSize(0)
+                .tryParsingSql(false)
+                .build();
+
+        db.insertIntoAuthor(Author.create("foo"));
+        db.insertIntoAuthor(Author.create("bar"));
+
+        StatementCache cache = db.getConnection().getStatementCache();
+        assertThat(cache.size(), is(0));
+        assertThat(cache.hitCount(), is(0L));
+        assertThat(db.selectFromAuthor().count(), is(2));
+    }
+
+    @Test
+    public void testStatementCacheEviction() throws Exception {
+        OrmaDatabase db = OrmaDatabase.builder(getContext())
+                .name(NAME)
+                .statementCacheSize(1)
+                .tryParsingSql(false)
+                .build();
+
+        Inserter<Author> inserter = db.prepareInsertIntoAuthor(); // in use, so not in the cache
+        db.deleteFromAuthor().execute();
+
+        inserter.execute(Author.create("foo"));
+        inserter.close(); // the INSERT statement evicts the DELETE statement
+
+        StatementCache cache = db.getConnection().getStatementCache();
+        assertThat(cache.size(), is(1));
+        assertThat(cache.evictionCount(), is(1L));
+        assertThat(db.selectFromAuthor().count(), is(1));
+    }
+
+    @Test
+    public void testStatementCacheWithConcurrentTransaction() throws Exception {
+        final OrmaDatabase db = OrmaDatabase.builder(getContext())
+                .name(NAME)
+                .tryParsingSql(false)
+                .build();
+        db.deleteFromAuthor().nameEq("foo").execute(); // caches the DELETE statement
+
+        final CountDownLatch transactionStarted = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(2);
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                db.transactionSync(new Runnable() {
+                    @Override
+                    public void run() {
+                        db.insertIntoAuthor(Author.create("foo"));
+                        transactionStarted.countDown();
+                        try {
+                            Thread.sleep(200); // until the other thread waits for the connection
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        db.deleteFromAuthor().nameEq("foo").execute();
+                    }
+                });
+                finished.countDown();
+            }
+        });
+        Thread other = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    transactionStarted.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                db.deleteFromAuthor().nameEq("foo").execute(); // blocks until the transaction ends
+                finished.countDown();
+            }
+        });
+        writer.setDaemon(true);
+        other.setDaemon(true);
+        writer.start();
+        other.start();
+
+        assertThat("no deadlock", finished.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(db.selectFromAuthor().count(), is(0));
+    }
+
+    @Test
+    public void testQueryListener() throws Exception {
+        final List<QueryEvent> events = new ArrayList<>();
+        OrmaDatabase db = OrmaDatabase.builder(getContext())
+                .name(NAME)
+                .tryParsingSql(false)
+                .queryListener(new QueryListener() {
+                    @Override
+                    public void onQuery(@NonNull QueryEvent event) {
+                        events.add(event);
+                    }
+                })
+                .build();
+        db.migrate();
+        events.clear();
+
+        db.insertIntoAuthor(Author.create("foo"));
+        db.updateAuthor().nameEq("foo").note("bar").execute();
+        assertThat(db.selectFromAuthor().toList().size(), is(1));
+        db.deleteFromAuthor().execute();
+
+        assertThat(events.size(), is(4));
+
+        QueryEvent insert = events.get(0);
+        assertThat(insert.getType(), is(QueryEvent.Type.INSERT));
+        assertThat(insert.getSql(), startsWith("INSERT INTO `Author`"));
+        assertThat(insert.getBindArgs(), is(arrayContaining(null, (Object) "foo")));
+        assertThat(insert.getRows(), is(1L));
+        assertThat(insert.getElapsedNanos(), is(greaterThanOrEqualTo(0L)));
+        assertThat(insert.getThread(), is(Thread.currentThread()));
+
+        assertThat(events.get(1).getType(), is(QueryEvent.Type.UPDATE));
+        assertThat(events.get(1).getRows(), is(1L));
+        assertThat(events.get(2).getType(), is(QueryEvent.Type.QUERY));
+        assertThat(events.get(2).getRows(), is(QueryEvent.UNKNOWN_ROWS)); // the cursor is not counted eagerly
+        assertThat(events.get(3).getType(), is(QueryEvent.Type.DELETE));
+        assertThat(events.get(3).getRows(), is(1L));
+    }
+
+    @Test
+    public void testReadConnectionPool() throws Exception {
+        final OrmaDatabase db = OrmaDatabase.builder(getContext())
+                .name(NAME)
+                .readConnectionPoolSize(2)
+                .tryParsingSql(false)
+                .build();
+
+        final OrmaConnection conn = db.getConnection();
+        assertThat(conn.getReadConnectionPoolSize(), is(2));
+
+        SQLiteDatabase reader1 = conn.getReadableDatabase();
+        SQLiteDatabase reader2 = conn.getReadableDatabase();
+        assertThat(reader1, is(not(sameInstance(conn.getWritableDatabase()))));
+        assertThat(reader2, is(not(sameInstance(reader1))));
+        assertThat(reader1.isReadOnly(), is(true));
+
+        db.insertIntoAuthor(Author.create("foo"));
+        assertThat(db.selectFromAuthor().count(), is(1));
+        assertThat(db.selectFromAuthor().count(), is(1));
+
+        db.transactionSync(new Runnable() {
+            @Override
+            public void run() {
+                // reads in a transaction use the writer to see the uncommitted changes
+                assertThat(conn.getReadableDatabase(), is(sameInstance(conn.getWritableDatabase())));
+                db.insertIntoAuthor(Author.create("bar"));
+                assertThat(db.selectFromAuthor().count(), is(2));
+            }
+        });
+        assertThat(db.selectFromAuthor().count(), is(2));
+
+        conn.close();
+        assertThat(reader1.isOpen(), is(false));
+        assertThat(reader2.isOpen(), is(false));
+        assertThat(conn.getWritableDatabase().isOpen(), is(false));
+    }
+
+    @Test
+    public void testReadConnectionPoolDisabledForInMemoryDatabase() throws Exception {
+        OrmaDatabase db = OrmaDatabase.builder(getContext())
+                .name(null)
+                .readConnectionPoolSize(2)
+                .tryParsingSql(false)
+                .build();
+
+        OrmaConnection conn = db.getConnection();
+        assertThat(conn.getReadConnectionPoolSize(), is(0));
+        assertThat(conn.getReadableDatabase(), is(sameInstance(conn.getWritableDatabase())));
+    }
+
+    @Test
+    public void testAccessDatabaseConcurrently() throws Exception {
+        OrmaDatabase db = OrmaDatabase.builder(getContext())
+                .name(null)
+                .tryParsingSql(false)
+                .build();
+        final OrmaConnection conn = db.getConnection();
+
+        final int threads = 8;
+        final int iterations = 1000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(threads);
+        final AtomicInteger count = new AtomicInteger();
+
+        for (int i = 0; i < threads; i++) {
+            final boolean writable = (i % 2) == 0;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < iterations; j++) {
+                            SQLiteDatabase sqlite = writable ? conn.getWritableDatabase() : conn.getReadableDatabase();
+                            if (sqlite != null) {
+                                count.incrementAndGet();
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        finish.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        start.countDown();
+        assertThat(finish.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(count.get(), is(threads * iterations));
+    }
+
     boolean isForeignKeyEnabled(OrmaDatabase orma) {
         SQLiteDatabase db = orma.getConnection().getReadableDatabase();
         return DatabaseUtils.longForQuery(db, "PRAGMA foreign_keys", null) != 0;
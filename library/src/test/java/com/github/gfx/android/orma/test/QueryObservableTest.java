@@ -16,10 +16,13 @@
 
 package com.github.gfx.android.orma.test;
 
+import com.github.gfx.android.orma.Selector;
 import com.github.gfx.android.orma.event.DataSetChangedEvent;
+import com.github.gfx.android.orma.event.RowIdSet;
 import com.github.gfx.android.orma.test.model.Author;
 import com.github.gfx.android.orma.test.model.Author_Selector;
 import com.github.gfx.android.orma.test.model.OrmaDatabase;
+import com.github.gfx.android.orma.test.model.Publisher;
 import com.github.gfx.android.orma.test.toolbox.OrmaFactory;
 
 import org.junit.Before;
@@ -29,11 +32,22 @@ import org.junit.runner.RunWith;
 import android.support.test.runner.AndroidJUnit4;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
 import io.reactivex.functions.Consumer;
 import io.reactivex.functions.Function;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.schedulers.TestScheduler;
 
 import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
@@ -117,6 +131,29 @@ public class QueryObservableTest {
         assertThat(result, hasSize(0));
     }
 
+    @Test
+    public void resubscribeAfterDispose() throws Exception {
+        final List<String> result = new ArrayList<>();
+        Consumer<Author_Selector> consumer = new Consumer<Author_Selector>() {
+            @Override
+            public void accept(Author_Selector selector) throws Exception {
+                result.add("count=" + selector.count());
+            }
+        };
+        Observable<Author_Selector> observable = db.relationOfAuthor().createQueryObservable();
+
+        // the observer is unregistered when the last subscription is disposed
+        observable.subscribe(consumer).dispose();
+        db.insertIntoAuthor(Author.create("bar"));
+        assertThat(result, hasSize(0));
+
+        // and registered again when it is subscribed again
+        Disposable disposable = observable.subscribe(consumer);
+        db.insertIntoAuthor(Author.create("baz"));
+        assertThat(result, contains("count=3"));
+        disposable.dispose();
+    }
+
     @SuppressWarnings("deprecation")
     @Test
     public void eventTypes() throws Exception {
@@ -174,6 +211,222 @@ public class QueryObservableTest {
         });
         assertThat(result, hasSize(1));
         assertThat(result, contains(DataSetChangedEvent.Type.TRANSACTION));
+
+        // fire an INSERT event for a batch
+        result.clear();
+        db.prepareInsertIntoAuthor().executeAll(Arrays.asList(
+                Author.create("a"), Author.create("b"), Author.create("c")));
+        assertThat(result, contains(DataSetChangedEvent.Type.INSERT));
+    }
+
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void rowLevelEvents() throws Exception {
+        final long id1 = db.insertIntoPublisher(Publisher.create("foo", 2000, 1));
+        final long id2 = db.insertIntoPublisher(Publisher.create("bar", 2001, 1));
+
+        final List<RowIdSet> result = new ArrayList<>();
+        db.relationOfPublisher()
+                .idEq(id1)
+                .createEventObservable()
+                .subscribe(new Consumer<DataSetChangedEvent<Selector<Publisher, ?>>>() {
+                    @Override
+                    public void accept(DataSetChangedEvent<Selector<Publisher, ?>> event) throws Exception {
+                        result.add(event.getChangedRowIds());
+                    }
+                });
+
+        // changes of unrelated rows
+        db.updatePublisher().idEq(id2).startedYear(2002).execute();
+        final long id3 = db.insertIntoPublisher(Publisher.create("baz", 2003, 1));
+        db.deleteFromPublisher().idIn(Arrays.asList(id2, id3)).execute();
+        db.transactionSync(new Runnable() {
+            @Override
+            public void run() {
+                db.updatePublisher().idGt(id1).startedYear(2004).execute();
+                db.insertIntoPublisher(Publisher.create("qux", 2005, 1));
+            }
+        });
+        assertThat(result, is(empty()));
+
+        // changes of the observed row
+        db.updatePublisher().idEq(id1).startedYear(2010).execute();
+        assertThat(result, contains(RowIdSet.of(id1)));
+
+        result.clear();
+        db.transactionSync(new Runnable() {
+            @Override
+            public void run() {
+                db.updatePublisher().idBetween(id1, id2).startedYear(2011).execute();
+            }
+        });
+        assertThat(result, contains(RowIdSet.range(id1, id2)));
+
+        result.clear();
+        db.deleteFromPublisher().execute();
+        assertThat(result, contains(RowIdSet.ALL));
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void rowLevelEventsWithOr() throws Exception {
+        long id1 = db.insertIntoPublisher(Publisher.create("foo", 2000, 1));
+        long id2 = db.insertIntoPublisher(Publisher.create("bar", 2001, 1));
+
+        final List<RowIdSet> result = new ArrayList<>();
+        db.relationOfPublisher()
+                .idEq(id1)
+                .or()
+                .where("started_year = ?", 2001)
+                .createEventObservable()
+                .subscribe(new Consumer<DataSetChangedEvent<Selector<Publisher, ?>>>() {
+                    @Override
+                    public void accept(DataSetChangedEvent<Selector<Publisher, ?>> event) throws Exception {
+                        result.add(event.getChangedRowIds());
+                    }
+                });
+
+        db.updatePublisher().idEq(id2).startedYear(2002).execute();
+        assertThat(result, contains(RowIdSet.of(id2)));
+    }
+
+    @Test
+    public void rowIdSet() throws Exception {
+        assertThat(RowIdSet.of(3, 1, 2, 1).getRowIds(), is(new long[]{1, 2, 3}));
+        assertThat(RowIdSet.of(1, 2).intersects(RowIdSet.of(2, 3)), is(true));
+        assertThat(RowIdSet.of(1, 3).intersects(RowIdSet.of(2, 4)), is(false));
+        assertThat(RowIdSet.of(1, 3).intersects(RowIdSet.range(2, 2)), is(false));
+        assertThat(RowIdSet.of(1, 3).intersects(RowIdSet.ALL), is(true));
+        assertThat(RowIdSet.EMPTY.intersects(RowIdSet.ALL), is(false));
+
+        assertThat(RowIdSet.range(1, 10).intersect(RowIdSet.of(0, 5, 11)), is(RowIdSet.of(5)));
+        assertThat(RowIdSet.range(1, 10).intersect(RowIdSet.range(5, 20)), is(RowIdSet.range(5, 10)));
+        assertThat(RowIdSet.range(1, 10).intersect(RowIdSet.range(11, 20)), is(RowIdSet.EMPTY));
+
+        assertThat(RowIdSet.of(1, 2).union(RowIdSet.of(5)), is(RowIdSet.of(1, 2, 5)));
+        assertThat(RowIdSet.of(1, 2).union(RowIdSet.range(4, 5)), is(RowIdSet.range(1, 5)));
+        assertThat(RowIdSet.EMPTY.union(RowIdSet.of(1)), is(RowIdSet.of(1)));
+    }
+
+    @Test
+    public void coalescedEvents() throws Exception {
+        final TestScheduler scheduler = new TestScheduler();
+        RxJavaPlugins.setComputationSchedulerHandler(new Function<Scheduler, Scheduler>() {
+            @Override
+            public Scheduler apply(Scheduler s) throws Exception {
+                return scheduler;
+            }
+        });
+        try {
+            final List<Author_Selector> result = new ArrayList<>();
+            db.relationOfAuthor()
+                    .<Author_Selector>createQueryObservable(100, TimeUnit.MILLISECONDS)
+                    .subscribe(new Consumer<Author_Selector>() {
+                        @Override
+                        public void accept(Author_Selector selector) throws Exception {
+                            result.add(selector);
+                        }
+                    });
+
+            db.insertIntoAuthor(Author.create("bar"));
+            db.insertIntoAuthor(Author.create("baz"));
+            db.updateAuthor().note("test note").execute();
+            assertThat(result, is(empty()));
+
+            scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+            assertThat(result, hasSize(1));
+            assertThat(db.getConnection().getCollapsedEventCount(), is(2L));
+
+            db.deleteFromAuthor().execute();
+            scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+            assertThat(result, hasSize(2));
+            assertThat(db.getConnection().getCollapsedEventCount(), is(2L));
+        } finally {
+            RxJavaPlugins.reset();
+        }
+    }
+
+    @Test
+    public void coalescedEventsToSlowSubscriber() throws Exception {
+        // a multi-threaded scheduler, which can run tasks in parallel regardless of the number of CPUs
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        final Scheduler scheduler = Schedulers.from(executor);
+        RxJavaPlugins.setComputationSchedulerHandler(new Function<Scheduler, Scheduler>() {
+            @Override
+            public Scheduler apply(Scheduler s) throws Exception {
+                return scheduler;
+            }
+        });
+        try {
+            final AtomicInteger running = new AtomicInteger();
+            final AtomicInteger maxRunning = new AtomicInteger();
+            final CountDownLatch received = new CountDownLatch(2);
+            db.relationOfAuthor()
+                    .<Author_Selector>createQueryObservable(5, TimeUnit.MILLISECONDS)
+                    .subscribe(new Consumer<Author_Selector>() {
+                        @Override
+                        public void accept(Author_Selector selector) throws Exception {
+                            int n = running.incrementAndGet();
+                            if (n > maxRunning.get()) {
+                                maxRunning.set(n);
+                            }
+                            Thread.sleep(50); // much longer than the window
+                            running.decrementAndGet();
+                            received.countDown();
+                        }
+                    });
+
+            for (int i = 0; i < 3; i++) {
+                db.insertIntoAuthor(Author.create("author" + i));
+                Thread.sleep(20); // longer than the window, but the subscriber is still busy
+            }
+
+            // the first event is delivered soon, and the rest are merged while the subscriber is busy
+            assertThat(received.await(5, TimeUnit.SECONDS), is(true));
+            assertThat(maxRunning.get(), is(1));
+        } finally {
+            RxJavaPlugins.reset();
+            executor.shutdown();
+        }
     }
 
+    @SuppressWarnings("deprecation")
+    @Test
+    public void coalescedEventTypes() throws Exception {
+        final TestScheduler scheduler = new TestScheduler();
+        RxJavaPlugins.setComputationSchedulerHandler(new Function<Scheduler, Scheduler>() {
+            @Override
+            public Scheduler apply(Scheduler s) throws Exception {
+                return scheduler;
+            }
+        });
+        try {
+            final List<DataSetChangedEvent<Author_Selector>> result = new ArrayList<>();
+            db.getConnection()
+                    .createEventObservable(db.selectFromAuthor(), 100, TimeUnit.MILLISECONDS)
+                    .subscribe(new Consumer<DataSetChangedEvent<Author_Selector>>() {
+                        @Override
+                        public void accept(DataSetChangedEvent<Author_Selector> event) throws Exception {
+                            result.add(event);
+                        }
+                    });
+
+            db.insertIntoAuthor(Author.create("bar"));
+            db.insertIntoAuthor(Author.create("baz"));
+            scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+
+            db.insertIntoAuthor(Author.create("qux"));
+            db.deleteFromAuthor().execute();
+            scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+
+            assertThat(result, hasSize(2));
+            assertThat(result.get(0).getType(), is(DataSetChangedEvent.Type.INSERT));
+            assertThat(result.get(0).getChangeCount(), is(2));
+            assertThat(result.get(1).getType(), is(DataSetChangedEvent.Type.TRANSACTION));
+            assertThat(result.get(1).getChangeCount(), is(2));
+        } finally {
+            RxJavaPlugins.reset();
+        }
+    }
 }
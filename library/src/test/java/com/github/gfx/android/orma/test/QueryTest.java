@@ -15,19 +15,30 @@
  */
 package com.github.gfx.android.orma.test;
 
+import com.github.gfx.android.orma.BulkUpdater;
+import com.github.gfx.android.orma.ColumnDef;
+import com.github.gfx.android.orma.IdentityMap;
 import com.github.gfx.android.orma.Inserter;
 import com.github.gfx.android.orma.ModelFactory;
 import com.github.gfx.android.orma.SingleAssociation;
+import com.github.gfx.android.orma.StatementCache;
+import com.github.gfx.android.orma.Tuple;
 import com.github.gfx.android.orma.annotation.OnConflict;
 import com.github.gfx.android.orma.exception.InvalidStatementException;
 import com.github.gfx.android.orma.exception.NoValueException;
+import com.github.gfx.android.orma.function.Consumer1;
 import com.github.gfx.android.orma.test.model.Author;
 import com.github.gfx.android.orma.test.model.Author_Selector;
 import com.github.gfx.android.orma.test.model.Book;
 import com.github.gfx.android.orma.test.model.Book_Schema;
 import com.github.gfx.android.orma.test.model.Book_Selector;
+import com.github.gfx.android.orma.test.model.ModelWithBlob;
+import com.github.gfx.android.orma.test.model.ModelWithBlob_Schema;
+import com.github.gfx.android.orma.test.model.ModelWithSetterConstructor;
+import com.github.gfx.android.orma.test.model.ModelWithSpecifiedHelpers;
 import com.github.gfx.android.orma.test.model.OrmaDatabase;
 import com.github.gfx.android.orma.test.model.Publisher;
+import com.github.gfx.android.orma.test.model.PublisherSchema;
 import com.github.gfx.android.orma.test.toolbox.IteratorUtils;
 import com.github.gfx.android.orma.test.toolbox.OrmaFactory;
 
@@ -42,6 +53,9 @@ import android.support.test.runner.AndroidJUnit4;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.functions.Consumer;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -102,6 +116,223 @@ public class QueryTest {
         assertThat(db.selectFromBook().count(), is(2));
     }
 
+    @Test
+    public void memoizedQuery() throws Exception {
+        Book_Selector selector = db.selectFromBook();
+        String sql = selector.buildQuery();
+        assertThat(selector.buildQuery(), is(sameInstance(sql)));
+        assertThat(sql, startsWith(db.selectFromBook().getSchema().getDefaultSelectFromClause()));
+
+        selector.titleEq("today");
+        assertThat(selector.buildQuery(), is(not(sql)));
+        assertThat(selector.toList(), hasSize(1));
+
+        sql = selector.buildQuery();
+        selector.orderByTitleAsc();
+        assertThat(selector.buildQuery(), is(not(sql)));
+
+        sql = selector.buildQuery();
+        selector.limit(1);
+        assertThat(selector.buildQuery(), is(sql + " LIMIT 1"));
+        assertThat(selector.clone().buildQuery(), is(selector.buildQuery()));
+    }
+
+    @Test
+    public void typedBindArgs() throws Exception {
+        // numbers are bound as numbers, not as strings
+        assertThat(db.selectFromBook().where("? = 1", 1).count(), is(2));
+        assertThat(db.selectFromBook().where("? = 1.5", 1.5f).count(), is(2));
+        assertThat(db.selectFromBook().where("? = 1", true).count(), is(2));
+        assertThat(db.selectFromBook().where("typeof(?) = 'integer'", 1L).count(), is(2));
+        assertThat(db.selectFromBook().where("typeof(?) = 'blob'", (Object) new byte[]{1, 2}).count(), is(2));
+
+        assertThat(db.updateBook().where("? = 1", 1).content("foo").execute(), is(2));
+        assertThat(db.deleteFromBook().where("? = 0", 1).execute(), is(0));
+    }
+
+    @Test
+    public void largeInList() throws Exception {
+        List<Book> books = db.selectFromBook().toList();
+        List<Long> ids = new ArrayList<>();
+        for (long i = 0; i < 5000; i++) {
+            ids.add(books.get(1).bookId + 1 + i);
+        }
+        ids.add(books.get(0).bookId);
+
+        assertThat(db.selectFromBook().bookIdIn(ids).value().title, is("today"));
+        assertThat(db.selectFromBook().bookIdNotIn(ids).value().title, is("friday"));
+        assertThat(db.selectFromBook().bookIdIn(ids).getRowIdSet().contains(books.get(0).bookId), is(true));
+
+        assertThat(db.updateBook().bookIdIn(ids).content("foo").execute(), is(1));
+        assertThat(db.deleteFromBook().bookIdIn(ids).execute(), is(1));
+        assertThat(db.selectFromBook().count(), is(1));
+    }
+
+    @Test
+    public void largeInListOfStrings() throws Exception {
+        List<String> titles = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            titles.add("it's " + i);
+        }
+        titles.add("today");
+
+        assertThat(db.selectFromBook().titleIn(titles).count(), is(1));
+        assertThat(db.selectFromBook().titleNotIn(titles).count(), is(1));
+        assertThat(db.selectFromBook().titleIn(titles).titleEq("today").count(), is(1));
+    }
+
+    @Test
+    public void veryLargeInList() throws Exception {
+        List<Book> books = db.selectFromBook().toList();
+        List<Long> ids = new ArrayList<>();
+        for (long i = 0; i < 50000; i++) {
+            ids.add(books.get(1).bookId + 1000000 + i);
+        }
+        ids.add(books.get(0).bookId);
+
+        // embedded as literals unless the JSON1 extension is available
+        assertThat(db.selectFromBook().bookIdIn(ids).value().title, is("today"));
+        assertThat(db.selectFromBook().bookIdNotIn(ids).value().title, is("friday"));
+
+        List<Long> tooManyIds = new ArrayList<>(ids);
+        for (long i = 50000; i < 200000; i++) {
+            tooManyIds.add(books.get(1).bookId + 1000000 + i);
+        }
+        StatementCache cache = db.getConnection().getStatementCache();
+        if (db.getConnection().isJson1Available()) {
+            assertThat(db.selectFromBook().bookIdIn(tooManyIds).value().title, is("today"));
+        } else {
+            try {
+                db.selectFromBook().bookIdIn(tooManyIds);
+                fail("not reached");
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage(), containsString("200001"));
+            }
+        }
+
+        // SQL with large lists of literals is not cached
+        ids.subList(5000, ids.size() - 1).clear();
+        int cacheSize = cache.size();
+        assertThat(db.updateBook().bookIdIn(ids).content("foo").execute(), is(1));
+        assertThat(db.deleteFromBook().bookIdIn(ids).execute(), is(1));
+        assertThat(cache.size(), is(db.getConnection().isJson1Available() ? cacheSize + 2 : cacheSize));
+    }
+
+    @Test
+    public void identityMap() throws Exception {
+        final OrmaDatabase db = OrmaFactory.builder()
+                .identityMapSize(16)
+                .build();
+        final Publisher publisher = db.createPublisher(new ModelFactory<Publisher>() {
+            @NonNull
+            @Override
+            public Publisher call() {
+                return Publisher.create("foo", 2015, 12);
+            }
+        });
+        for (String title : new String[]{"today", "friday"}) {
+            Book book = new Book();
+            book.title = title;
+            book.publisher = SingleAssociation.id(publisher.id);
+            db.insertIntoBook(book);
+        }
+
+        IdentityMap identityMap = db.getConnection().getIdentityMap();
+        List<Book> books = db.selectFromBook().toList();
+        Publisher p1 = books.get(0).publisher.get();
+        assertThat(books.get(1).publisher.get(), is(sameInstance(p1)));
+        assertThat(identityMap.missCount(), is(1L));
+        assertThat(identityMap.hitCount(), is(1L));
+
+        // invalidated by updaters
+        db.updatePublisher().idEq(publisher.id).name("bar").execute();
+        Publisher p2 = books.get(0).publisher.get();
+        assertThat(p2, is(not(sameInstance(p1))));
+        assertThat(p2.name, is("bar"));
+
+        // not invalidated by changes of other rows
+        db.insertIntoPublisher(Publisher.create("baz", 2016, 1));
+        assertThat(books.get(1).publisher.get(), is(sameInstance(p2)));
+
+        // invalidated by rolled-back transactions
+        try {
+            db.transactionSync(new Runnable() {
+                @Override
+                public void run() {
+                    db.updatePublisher().idEq(publisher.id).name("qux").execute();
+                    assertThat(db.selectFromBook().value().publisher.get().name, is("qux"));
+                    throw new RuntimeException("rollback");
+                }
+            });
+            fail("not reached");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), is("rollback"));
+        }
+        assertThat(books.get(0).publisher.get().name, is("bar"));
+    }
+
+    @Test
+    public void prefetch() throws Exception {
+        OrmaDatabase db = OrmaFactory.builder()
+                .foreignKeys(false)
+                .build();
+        List<Publisher> publishers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Publisher publisher = Publisher.create("publisher " + i, 2015, 12);
+            publisher.id = db.insertIntoPublisher(publisher);
+            publishers.add(publisher);
+        }
+        for (int i = 0; i < 10; i++) {
+            Book book = new Book();
+            book.title = "book " + i;
+            book.publisher = SingleAssociation.id(publishers.get(i % 3).id);
+            db.insertIntoBook(book);
+        }
+
+        List<Book> books = db.selectFromBook()
+                .prefetch(Book_Schema.INSTANCE.publisher)
+                .orderBy(Book_Schema.INSTANCE.bookId.orderInAscending())
+                .toList();
+        List<Book> iteratedBooks = new ArrayList<>();
+        for (Book book : db.relationOfBook().prefetch(Book_Schema.INSTANCE.publisher)) {
+            iteratedBooks.add(book);
+        }
+
+        // prefetched models are available without queries
+        db.deleteFromPublisher().execute();
+        for (int i = 0; i < books.size(); i++) {
+            assertThat(books.get(i).publisher.get().name, is("publisher " + (i % 3)));
+            assertThat(iteratedBooks.get(i).publisher.get().name, is("publisher " + (i % 3)));
+        }
+
+        try {
+            db.selectFromBook().value().publisher.get();
+            fail("not reached");
+        } catch (NoValueException e) {
+            assertThat(e.getMessage(), containsString("No value found"));
+        }
+    }
+
+    @Test
+    public void bindArgsAfterExecution() throws Exception {
+        Book_Selector selector = db.selectFromBook().where("inPrint = ?", true);
+        assertThat(selector.count(), is(1));
+        selector.titleEq("friday");
+        assertThat(selector.count(), is(0));
+        selector.or().titleEq("friday");
+        assertThat(selector.count(), is(1));
+    }
+
+    @Test
+    public void memoizedQueryWithGroupBy() throws Exception {
+        Book_Selector selector = db.selectFromBook();
+        assertThat(selector.count(), is(2));
+        selector.groupBy(Book_Schema.INSTANCE.inPrint.getQualifiedName());
+        assertThat(selector.count(), is(1));
+        assertThat(selector.getOrNull(0), is(notNullValue()));
+        assertThat(selector.getOrNull(1), is(notNullValue()));
+    }
+
     @Test
     public void empty() throws Exception {
         assertThat(db.selectFromBook().isEmpty(), is(false));
@@ -202,6 +433,43 @@ public class QueryTest {
                 is(contains(true, false)));
     }
 
+    @Test
+    public void pluckPrimitives() throws Exception {
+        Book_Selector selector = db.selectFromBook().orderByTitleAsc();
+        long[] bookIds = selector.pluckLongs(Book_Schema.INSTANCE.bookId);
+        assertThat(bookIds.length, is(2));
+        assertThat(bookIds[0], is(selector.value().bookId));
+
+        assertThat(db.selectFromBook().pluckLongs(Book_Schema.INSTANCE.price), is(new long[]{100, 100}));
+        assertThat(db.selectFromBook().pluckDoubles(Book_Schema.INSTANCE.price), is(new double[]{100.0, 100.0}));
+        assertThat(db.selectFromPublisher().pluckInts(PublisherSchema.INSTANCE.startedMonth), is(new int[]{12}));
+        assertThat(db.selectFromBook().orderByTitleDesc().pluckInts(Book_Schema.INSTANCE.inPrint), is(new int[]{1, 0}));
+        assertThat(db.selectFromBook().titleEq("nothing").pluckLongs(Book_Schema.INSTANCE.bookId).length, is(0));
+
+        // shortcuts are generated for the columns with Column.Helpers.PLUCK
+        ModelWithSpecifiedHelpers model = new ModelWithSpecifiedHelpers();
+        model.pluckOnly = 42;
+        db.insertIntoModelWithSpecifiedHelpers(model);
+        assertThat(db.selectFromModelWithSpecifiedHelpers().pluckPluckOnlyAsIntArray(), is(new int[]{42}));
+    }
+
+    @Test
+    public void select() throws Exception {
+        Book_Schema schema = Book_Schema.INSTANCE;
+        List<Tuple<Book>> tuples = db.selectFromBook().orderByTitleAsc().select(schema.title, schema.inPrint).toList();
+
+        assertThat(tuples, hasSize(2));
+        assertThat(tuples.get(0).get(schema.title), is("friday"));
+        assertThat(tuples.get(0).get(schema.inPrint), is(false));
+        assertThat(tuples.get(1).get(schema.title), is("today"));
+        assertThat(tuples.get(1).get(schema.inPrint), is(true));
+        assertThat(tuples.get(1).get(0), is((Object) "today"));
+
+        assertThat(db.relationOfBook().where("inPrint = ?", true).select(schema.title).toList(),
+                contains(hasToString("Tuple{title=today}")));
+        assertThat(db.selectFromBook().select(schema.title).buildQuery(), not(containsString(schema.content.name)));
+    }
+
     @Test
     public void aggregators() throws Exception {
         assertThat(db.selectFromBook().orderByTitleAsc().pluck(Book_Schema.INSTANCE.title),
@@ -383,6 +651,110 @@ public class QueryTest {
         }
     }
 
+    @Test
+    public void iteratorWithKeysetPagination() throws Exception {
+        for (int i = 0; i < 15; i++) {
+            Book book = new Book();
+            book.title = "name #" + (i % 4);
+            book.content = "blah blah blah #" + i;
+            book.inPrint = (i % 3) == 0;
+            book.publisher = SingleAssociation.id(publisher.id);
+
+            db.insertIntoBook(book);
+        }
+
+        List<Book_Selector> selectors = new ArrayList<>();
+        selectors.add(db.selectFromBook());
+        selectors.add(db.selectFromBook().orderByTitleDesc());
+        selectors.add(db.selectFromBook().orderByTitleAsc().orderBy(Book_Schema.INSTANCE.inPrint.orderInDescending()));
+        selectors.add(db.selectFromBook().orderBy(Book_Schema.INSTANCE.bookId.orderInDescending()));
+        selectors.add(db.selectFromBook().orderByTitleDesc().limit(7).offset(3));
+        selectors.add(db.selectFromBook().titleEq("name #1").or().titleEq("name #2").orderByTitleAsc());
+
+        for (Book_Selector selector : selectors) {
+            // ties are ordered by the primary key in keyset pagination
+            List<Book> expected = selector.clone().orderBy(Book_Schema.INSTANCE.bookId.orderInAscending()).toList();
+            List<Book> actual = IteratorUtils.listFromIterable(selector);
+            assertThat(actual, hasSize(expected.size()));
+            for (int i = 0; i < expected.size(); i++) {
+                assertThat(selector.buildQuery(), actual.get(i).content, is(expected.get(i).content));
+            }
+        }
+
+        // fallback to OFFSET
+        {
+            Book_Selector selector = db.selectFromBook().orderBy("title DESC, bookId ASC");
+            List<Book> expected = selector.toList();
+            List<Book> actual = IteratorUtils.listFromIterable(selector);
+            assertThat(actual, hasSize(expected.size()));
+            for (int i = 0; i < expected.size(); i++) {
+                assertThat(selector.buildQuery(), actual.get(i).content, is(expected.get(i).content));
+            }
+        }
+    }
+
+    @Test
+    public void toListInBatches() throws Exception {
+        for (int i = 0; i < 15; i++) {
+            Book book = new Book();
+            book.title = "name #" + (i % 4);
+            book.content = "blah blah blah #" + i;
+            book.publisher = SingleAssociation.id(publisher.id);
+
+            db.insertIntoBook(book);
+        }
+
+        List<Book_Selector> selectors = new ArrayList<>();
+        selectors.add(db.selectFromBook());
+        selectors.add(db.selectFromBook().orderByTitleDesc());
+        selectors.add(db.selectFromBook().orderByTitleDesc().limit(7).offset(3));
+        selectors.add(db.selectFromBook().orderBy("title DESC, bookId ASC"));
+
+        for (Book_Selector selector : selectors) {
+            List<Book> expected = selector.clone().orderBy(Book_Schema.INSTANCE.bookId.orderInAscending()).toList();
+            for (int batchSize : new int[]{1, 4, 100}) {
+                List<Book> actual = selector.toListInBatches(batchSize);
+                assertThat(actual, hasSize(expected.size()));
+                for (int i = 0; i < expected.size(); i++) {
+                    assertThat(selector.buildQuery(), actual.get(i).content, is(expected.get(i).content));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void forEachReusing() throws Exception {
+        final Book holder = new Book();
+        final List<String> titles = new ArrayList<>();
+        db.selectFromBook().orderByTitleAsc().forEachReusing(holder, new Consumer1<Book>() {
+            @Override
+            public void accept(Book book) {
+                assertThat(book, is(sameInstance(holder)));
+                titles.add(book.title + ":" + book.content + ":" + book.inPrint);
+            }
+        });
+
+        assertThat(titles, contains("friday:apple:false", "today:milk, banana:true"));
+        assertThat(holder.title, is("today"));
+        assertThat(holder.publisher.getId(), is(publisher.id));
+    }
+
+    @Test
+    public void forEachReusingModelWithSetterConstructor() throws Exception {
+        try {
+            db.selectFromModelWithSetterConstructor().forEachReusing(new ModelWithSetterConstructor(1, "foo", "bar"),
+                    new Consumer1<ModelWithSetterConstructor>() {
+                        @Override
+                        public void accept(ModelWithSetterConstructor model) {
+                            fail("not reached");
+                        }
+                    });
+            fail("not reached");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), containsString(ModelWithSetterConstructor.class.getName()));
+        }
+    }
+
     @Test
     public void pageAndPer() throws Exception {
         for (int i = 0; i < 5; i++) {
@@ -524,6 +896,69 @@ public class QueryTest {
         assertThat(book.content, is("modified"));
     }
 
+    @Test
+    public void bulkUpdate() throws Exception {
+        final List<Book> books = db.selectFromBook().orderBy(Book_Schema.INSTANCE.bookId.orderInAscending()).toList();
+        for (Book book : books) {
+            book.content = book.title + " modified";
+            book.price = book.price + 10;
+        }
+
+        final AtomicInteger events = new AtomicInteger();
+        db.relationOfBook().<Book_Selector>createQueryObservable().subscribe(new Consumer<Book_Selector>() {
+            @Override
+            public void accept(Book_Selector selector) throws Exception {
+                events.incrementAndGet();
+            }
+        });
+        final AtomicInteger eventsForOtherRows = new AtomicInteger();
+        db.relationOfBook().bookIdEq(Long.MAX_VALUE).<Book_Selector>createQueryObservable().subscribe(new Consumer<Book_Selector>() {
+            @Override
+            public void accept(Book_Selector selector) throws Exception {
+                eventsForOtherRows.incrementAndGet();
+            }
+        });
+
+        BulkUpdater<Book> updater = db.prepareUpdateBook(Book_Schema.INSTANCE.content, Book_Schema.INSTANCE.price);
+        try {
+            assertThat(updater.getSql(), is("UPDATE `Book` SET `content`=?,`price`=? WHERE `bookId`=?"));
+            assertThat(updater.executeAll(books), is(2));
+        } finally {
+            updater.close();
+        }
+        assertThat(events.get(), is(1));
+        assertThat(eventsForOtherRows.get(), is(0)); // notified with the rowids of the updated rows
+
+        List<Book> updated = db.selectFromBook().orderBy(Book_Schema.INSTANCE.bookId.orderInAscending()).toList();
+        assertThat(updated.get(0).content, is("today modified"));
+        assertThat(updated.get(0).price, is(110L));
+        assertThat(updated.get(1).content, is("friday modified"));
+        assertThat(updated.get(0).inPrint, is(true));
+    }
+
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    static <Model> ColumnDef<Model, ?>[] columns(ColumnDef<Model, ?>... columns) {
+        return columns;
+    }
+
+    @Test
+    public void bulkUpdaterRequiresPrimaryKey() throws Exception {
+        try {
+            new BulkUpdater<>(db.getConnection(), ModelWithBlob_Schema.INSTANCE,
+                    columns(ModelWithBlob_Schema.INSTANCE.blob));
+            fail("not reached");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString(ModelWithBlob.class.getName()));
+        }
+        try {
+            db.relationOfModelWithBlob().mergingUpserter();
+            fail("not reached");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString(ModelWithBlob.class.getName()));
+        }
+    }
+
     @Test
     public void delete() throws Exception {
         int result = db.deleteFromBook()
@@ -649,6 +1084,35 @@ public class QueryTest {
         assertThat(db.selectFromBook().count(), is(7));
     }
 
+    @Test
+    public void inserterExecuteAllInMultipleStatements() throws Exception {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Book book = new Book();
+            book.title = "book" + i;
+            book.content = (i % 2) == 0 ? null : "content" + i;
+            book.inPrint = (i % 3) == 0;
+            book.price = i;
+            book.publisher = SingleAssociation.id(publisher.id);
+            books.add(book);
+        }
+
+        Inserter<Book> inserter = db.prepareInsertIntoBook();
+        inserter.executeAll(books);
+        inserter.executeAll(books.subList(0, 1));
+        inserter.executeAll(new ArrayList<Book>());
+
+        assertThat(db.selectFromBook().count(), is(1003));
+
+        List<Book> inserted = db.selectFromBook().orderBy(Book_Schema.INSTANCE.bookId.orderInAscending()).offset(2).limit(1000).toList();
+        for (int i = 0; i < 1000; i++) {
+            assertThat(inserted.get(i).title, is(books.get(i).title));
+            assertThat(inserted.get(i).content, is(books.get(i).content));
+            assertThat(inserted.get(i).inPrint, is(books.get(i).inPrint));
+            assertThat(inserted.get(i).price, is(books.get(i).price));
+        }
+    }
+
     @Test
     public void inserterExecuteModelFactory() throws Exception {
         Inserter<Book> inserter = db.prepareInsertIntoBook();
@@ -729,6 +1193,37 @@ public class QueryTest {
         assertThat(publisher.startedMonth, is(12));
     }
 
+    @Test
+    public void readInto() throws Exception {
+        PublisherSchema schema = PublisherSchema.INSTANCE;
+        Cursor cursor = db.getConnection().rawQuery("SELECT started_month, name FROM publishers");
+        try {
+            int[] columnMap = schema.buildColumnMap(cursor);
+            assertThat(columnMap[PublisherSchema.INDEX_STARTED_MONTH], is(0));
+            assertThat(columnMap[PublisherSchema.INDEX_NAME], is(1));
+            assertThat(columnMap[PublisherSchema.INDEX_ID], is(-1));
+
+            assertThat(cursor.moveToFirst(), is(true));
+            Publisher model = new Publisher();
+            model.startedYear = 1999;
+            schema.readInto(db.getConnection(), model, cursor, columnMap);
+            assertThat(model.name, is("foo bar"));
+            assertThat(model.startedMonth, is(12));
+            assertThat(model.startedYear, is(1999));
+        } finally {
+            cursor.close();
+        }
+
+        cursor = db.selectFromBook().orderByTitleAsc().execute();
+        try {
+            assertThat(cursor.moveToFirst(), is(true));
+            assertThat(cursor.getString(Book_Schema.INDEX_TITLE), is("friday"));
+            assertThat(cursor.getLong(Book_Schema.INDEX_IN_PRINT), is(0L));
+        } finally {
+            cursor.close();
+        }
+    }
+
     @Test
     public void rawQuery() throws Exception {
         Cursor cursor = db.getConnection().rawQuery("select count (*) from sqlite_master");
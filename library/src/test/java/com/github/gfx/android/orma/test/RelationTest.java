@@ -19,8 +19,11 @@ package com.github.gfx.android.orma.test;
 import com.github.gfx.android.orma.Inserter;
 import com.github.gfx.android.orma.ModelFactory;
 import com.github.gfx.android.orma.Relation;
+import com.github.gfx.android.orma.Upserter;
+import com.github.gfx.android.orma.test.model.Author_Schema;
 import com.github.gfx.android.orma.test.model.ModelWithDate;
 import com.github.gfx.android.orma.test.model.ModelWithDate_Relation;
+import com.github.gfx.android.orma.test.model.ModelWithGenerics_Schema;
 import com.github.gfx.android.orma.test.model.ModelWithMultipleSortableColumns;
 import com.github.gfx.android.orma.test.model.ModelWithMultipleSortableColumns_Relation;
 import com.github.gfx.android.orma.test.model.OrmaDatabase;
@@ -33,6 +36,7 @@ import org.junit.runner.RunWith;
 import android.support.annotation.NonNull;
 import android.support.test.runner.AndroidJUnit4;
 
+import java.util.Arrays;
 import java.util.Date;
 
 import static org.hamcrest.MatcherAssert.*;
@@ -300,6 +304,40 @@ public class RelationTest {
         assertThat(rel().nameEq(model.name).selector().value().note, is("modified"));
     }
 
+    @Test
+    public void mergingUpserter() throws Exception {
+        String rowIdQuery = "SELECT rowid FROM ModelWithDate WHERE name = ?";
+        long rowId = orma.getConnection().rawQueryForLong(rowIdQuery, "A");
+
+        ModelWithDate a = find("A");
+        a.note = "modified";
+        ModelWithDate e = new ModelWithDate();
+        e.name = "E";
+        e.note = "new";
+        e.time = new Date();
+
+        Upserter<ModelWithDate> upserter = rel().mergingUpserter();
+        try {
+            upserter.executeAll(Arrays.asList(a, e));
+        } finally {
+            upserter.close();
+        }
+
+        assertThat(find("A").note, is("modified"));
+        assertThat(find("E").note, is("new"));
+        assertThat(orma.relationOfModelWithDate().count(), is(5));
+        assertThat("updated in place", orma.getConnection().rawQueryForLong(rowIdQuery, "A"), is(rowId));
+    }
+
+    @Test
+    public void buildUpsertStatement() throws Exception {
+        assertThat(Upserter.buildUpsertStatement(Author_Schema.INSTANCE),
+                is("INSERT INTO `Author` (`note`,`name`) VALUES (?,?)"
+                        + " ON CONFLICT(`name`) DO UPDATE SET `note`=excluded.`note`"));
+        assertThat(Upserter.buildUpsertStatement(ModelWithGenerics_Schema.INSTANCE),
+                is("INSERT INTO `ModelWithGenerics` (`id`) VALUES (?) ON CONFLICT(`id`) DO NOTHING"));
+    }
+
     @Test
     public void iterable() throws Exception {
         Relation<ModelWithDate, ?> rel = rel().orderByNameAsc();
@@ -42,6 +42,7 @@ import io.reactivex.ObservableSource;
 import io.reactivex.SingleSource;
 import io.reactivex.functions.Function;
 import io.reactivex.functions.Predicate;
+import io.reactivex.subscribers.TestSubscriber;
 
 import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
@@ -266,4 +267,62 @@ public class RxJava2Test {
 
         assertThat(mapped, contains("today", "friday"));
     }
+
+    @Test
+    public void executeAsFlowable() throws Exception {
+        db.selectFromBook()
+                .executeAsFlowable()
+                .map(new Function<Book, String>() {
+                    @Override
+                    public String apply(Book book) throws Exception {
+                        return book.title;
+                    }
+                })
+                .test()
+                .assertResult("today", "friday", "tomorrow");
+
+        db.relationOfBook()
+                .orderByTitleAsc()
+                .executeAsFlowable(2)
+                .map(new Function<Book, String>() {
+                    @Override
+                    public String apply(Book book) throws Exception {
+                        return book.title;
+                    }
+                })
+                .test()
+                .assertResult("friday", "today", "tomorrow");
+    }
+
+    @Test
+    public void executeAsFlowableWithBackpressure() throws Exception {
+        TestSubscriber<Book> subscriber = db.selectFromBook()
+                .executeAsFlowable(1)
+                .test(0);
+
+        subscriber.assertNoValues();
+
+        subscriber.request(2);
+        subscriber.assertValueCount(2)
+                .assertNotComplete();
+
+        db.deleteFromBook().titleEq("tomorrow").execute();
+
+        subscriber.request(1);
+        subscriber.assertValueCount(2)
+                .assertComplete();
+    }
+
+    @Test
+    public void executeAsFlowableWithCancellation() throws Exception {
+        TestSubscriber<Book> subscriber = db.selectFromBook()
+                .executeAsFlowable(1)
+                .test(1);
+        subscriber.assertValueCount(1);
+
+        subscriber.cancel();
+        subscriber.request(2);
+        subscriber.assertValueCount(1)
+                .assertNotComplete();
+    }
 }
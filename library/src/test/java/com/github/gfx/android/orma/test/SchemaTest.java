@@ -21,6 +21,7 @@ import com.github.gfx.android.orma.test.model.Author_Schema;
 import com.github.gfx.android.orma.test.model.Book_Schema;
 import com.github.gfx.android.orma.test.model.ModelWithDirectAssociation2_Schema;
 import com.github.gfx.android.orma.test.model.ModelWithDirectAssociation_Schema;
+import com.github.gfx.android.orma.test.model.ModelWithSimilarColumnNames_Schema;
 import com.github.gfx.android.orma.test.model.ModelWithInheritance;
 import com.github.gfx.android.orma.test.model.ModelWithInheritance_Schema;
 import com.github.gfx.android.orma.test.model.ModelWithNestedDirectAssociations_Schema;
@@ -66,6 +67,28 @@ public class SchemaTest {
                 ));
     }
 
+    @Test
+    public void testColumnIndexes() throws Exception {
+        ModelWithDirectAssociation_Schema schema = ModelWithDirectAssociation_Schema.INSTANCE;
+        String[] resultColumns = schema.getDefaultResultColumns();
+
+        assertThat(resultColumns[ModelWithDirectAssociation_Schema.INDEX_NAME], is(schema.name.getQualifiedName()));
+        assertThat(resultColumns[ModelWithDirectAssociation_Schema.INDEX_AUTHOR], is(schema.author.getQualifiedName()));
+        assertThat(resultColumns[ModelWithDirectAssociation_Schema.INDEX_PUBLISHER], is(schema.publisher.getQualifiedName()));
+        assertThat(resultColumns[ModelWithDirectAssociation_Schema.INDEX_NOTE], is(schema.note.getQualifiedName()));
+    }
+
+    @Test
+    public void testColumnIndexesOfSimilarNames() throws Exception {
+        ModelWithSimilarColumnNames_Schema schema = ModelWithSimilarColumnNames_Schema.INSTANCE;
+        String[] resultColumns = schema.getDefaultResultColumns();
+
+        // both fooBar and foo_bar would be INDEX_FOO_BAR
+        assertThat(resultColumns[ModelWithSimilarColumnNames_Schema.INDEX_fooBar], is(schema.fooBar.getQualifiedName()));
+        assertThat(resultColumns[ModelWithSimilarColumnNames_Schema.INDEX_foo_bar], is(schema.foo_bar.getQualifiedName()));
+        assertThat(resultColumns[ModelWithSimilarColumnNames_Schema.INDEX_ID], is(schema.id.getQualifiedName()));
+    }
+
     @Test
     public void testBookSchema() throws Exception {
         Book_Schema schema = Book_Schema.INSTANCE;
@@ -32,4 +32,7 @@ public class ModelWithSpecifiedHelpers {
 
     @Column(helpers = Column.Helpers.ORDERS)
     public int ordersOnly;
+
+    @Column(helpers = Column.Helpers.PLUCK)
+    public int pluckOnly;
 }
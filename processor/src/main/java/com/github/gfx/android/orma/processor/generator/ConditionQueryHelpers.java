@@ -78,6 +78,11 @@ public class ConditionQueryHelpers {
         }
 
         if (aggregatorHelpers) {
+            schema.getColumns()
+                    .stream()
+                    .filter(column -> column.hasHelper(Column.Helpers.PLUCK))
+                    .forEach(column -> buildPluckHelpers(methodSpecs, column));
+
             schema.getColumnsWithoutAutoId()
                     .stream()
                     .filter(ColumnDefinition::hasAggregationHelpers)
@@ -379,6 +384,31 @@ public class ConditionQueryHelpers {
         }
     }
 
+    void buildPluckHelpers(List<MethodSpec> methodSpecs, ColumnDefinition column) {
+        if (!column.type.isPrimitive() || column.needsTypeAdapter()) {
+            return;
+        }
+        TypeName elementType;
+        if (column.type.equals(TypeName.LONG)) {
+            elementType = TypeName.LONG;
+        } else if (column.type.equals(TypeName.INT) || column.type.equals(TypeName.SHORT)
+                || column.type.equals(TypeName.BYTE)) {
+            elementType = TypeName.INT;
+        } else if (column.type.equals(TypeName.DOUBLE) || column.type.equals(TypeName.FLOAT)) {
+            elementType = TypeName.DOUBLE;
+        } else {
+            return; // boolean and char
+        }
+        String elementName = Strings.toUpperFirst(elementType.toString()); // "Long", "Int" or "Double"
+        methodSpecs.add(MethodSpec.methodBuilder("pluck" + Strings.toUpperFirst(column.name) + "As" + elementName + "Array")
+                .addAnnotation(Annotations.nonNull())
+                .addModifiers(Modifier.PUBLIC)
+                .returns(ArrayTypeName.of(elementType))
+                .addStatement("return pluck$Ls(schema.$L)", elementName, column.name)
+                .build()
+        );
+    }
+
     void buildAggregationHelpers(List<MethodSpec> methodSpecs, ColumnDefinition column) {
         if (column.hasHelper(Column.Helpers.MIN) && Types.isNumeric(column.type)) {
             methodSpecs.add(MethodSpec.methodBuilder("minBy" + Strings.toUpperFirst(column.name))
@@ -23,6 +23,7 @@ import com.github.gfx.android.orma.processor.model.SchemaDefinition;
 import com.github.gfx.android.orma.processor.util.Annotations;
 import com.github.gfx.android.orma.processor.util.Types;
 import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
@@ -412,9 +413,13 @@ public class DatabaseWriter extends BaseWriter {
                                             .addAnnotation(Annotations.nonNull())
                                             .build()
                             )
-                            .addStatement("return prepareInsertInto$L().execute(model)",
-                                    simpleModelName
-                            )
+                            .addStatement("$T inserter = prepareInsertInto$L()",
+                                    Types.getInserter(schema.getModelClassName()), simpleModelName)
+                            .beginControlFlow("try")
+                            .addStatement("return inserter.execute(model)")
+                            .nextControlFlow("finally")
+                            .addStatement("inserter.close()") // returns the statement to the cache
+                            .endControlFlow()
                             .build());
 
             // For prepared statements
@@ -469,6 +474,29 @@ public class DatabaseWriter extends BaseWriter {
                             )
                             .build());
 
+            if (schema.getPrimaryKey().isPresent()) { // rows are updated by the primary key
+                TypeName columnDefType = Types.getColumnDef(schema.getModelClassName(), Types.WildcardType);
+                methodSpecs.add(
+                        MethodSpec.methodBuilder("prepareUpdate" + simpleModelName)
+                                .addJavadoc("Create a prepared statement for {@code UPDATE $T SET ... WHERE pk = ?},"
+                                                + " which updates {@code columns} of each model.\n",
+                                        schema.getModelClassName())
+                                .addAnnotation(Annotations.workerThread())
+                                .addAnnotations(Annotations.safeVarargsIfNeeded(columnDefType))
+                                .varargs(true)
+                                .addModifiers(Modifier.PUBLIC, Modifier.FINAL) // to use @SafeVarargs
+                                .addParameter(ParameterSpec.builder(ArrayTypeName.of(columnDefType), "columns")
+                                        .addAnnotation(Annotations.nonNull())
+                                        .build())
+                                .returns(Types.getBulkUpdater(schema.getModelClassName()))
+                                .addStatement("return new $T($L, $L, columns)",
+                                        Types.getBulkUpdater(schema.getModelClassName()),
+                                        connection,
+                                        schemaInstance
+                                )
+                                .build());
+            }
+
             // For prepared statements RxJava observables
 
             TypeName inserterType = Types.getInserter(schema.getModelClassName());
@@ -52,6 +52,10 @@ public class SchemaWriter extends BaseWriter {
 
     private static final String $defaultResultColumns = "$defaultResultColumns";
 
+    private static final String $selectFromTableClause = "$selectFromTableClause";
+
+    private static final String $defaultSelectFromClause = "$defaultSelectFromClause";
+
     private static final String $alias = "$alias";
 
     private static final String onConflictAlgorithm = "onConflictAlgorithm";
@@ -111,6 +115,16 @@ public class SchemaWriter extends BaseWriter {
                 .addAnnotation(Annotations.nullable())
                 .build());
 
+        List<ColumnDefinition> schemaColumns = schema.getColumns();
+        int[] columnIndexes = buildColumnIndexes();
+        for (int i = 0; i < schemaColumns.size(); i++) {
+            fieldSpecs.add(FieldSpec.builder(TypeName.INT, columnIndexConstantName(schemaColumns.get(i)), publicStaticFinal)
+                    .addJavadoc("The index of {@code $L} in {@link #getDefaultResultColumns()}\n",
+                            schemaColumns.get(i).columnName)
+                    .initializer("$L", columnIndexes[i])
+                    .build());
+        }
+
         schema.getColumns().forEach(columnDef -> {
             FieldSpecDefinition fieldSpecDef = buildColumnFieldSpec(columnDef);
             columns.add(fieldSpecDef);
@@ -137,6 +151,18 @@ public class SchemaWriter extends BaseWriter {
                         .build()
         );
 
+        fieldSpecs.add(
+                FieldSpec.builder(Types.String, $selectFromTableClause)
+                        .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+                        .build()
+        );
+
+        fieldSpecs.add(
+                FieldSpec.builder(Types.String, $defaultSelectFromClause)
+                        .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+                        .build()
+        );
+
         return fieldSpecs;
     }
 
@@ -409,6 +435,9 @@ public class SchemaWriter extends BaseWriter {
                         .addCode(buildFieldInitializations())
                         .addStatement("$L = new String[]{\n$L}",
                                 $defaultResultColumns, buildEscapedColumnNamesInitializer(schema, Collections.emptyList()))
+                        .addStatement("$L = $L", $selectFromTableClause, buildSelectFromTableClause())
+                        .addStatement("$L = $S + $T.join($S, $L) + $S + $L", $defaultSelectFromClause,
+                                "SELECT ", Types.TextUtils, ", ", $defaultResultColumns, " FROM ", $selectFromTableClause)
                         .build()
         );
 
@@ -462,7 +491,16 @@ public class SchemaWriter extends BaseWriter {
                         .addAnnotations(Annotations.overrideAndNonNull())
                         .addModifiers(Modifier.PUBLIC)
                         .returns(Types.String)
-                        .addStatement("return $L", buildSelectFromTableClause())
+                        .addStatement("return $L", $selectFromTableClause)
+                        .build()
+        );
+
+        methodSpecs.add(
+                MethodSpec.methodBuilder("getDefaultSelectFromClause")
+                        .addAnnotations(Annotations.overrideAndNonNull())
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(Types.String)
+                        .addStatement("return $L", $defaultSelectFromClause)
                         .build()
         );
 
@@ -571,6 +609,29 @@ public class SchemaWriter extends BaseWriter {
                                         .addAnnotation(Annotations.nonNull())
                                         .build())
                         .addParameter(boolean.class, withoutAutoId)
+                        .addStatement("bindArgs(conn, statement, model, $L, 0)", withoutAutoId)
+                        .build()
+        );
+
+        methodSpecs.add(
+                MethodSpec.methodBuilder("bindArgs")
+                        .addAnnotation(Annotations.override())
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(TypeName.VOID)
+                        .addParameter(
+                                ParameterSpec.builder(Types.OrmaConnection, "conn")
+                                        .addAnnotation(Annotations.nonNull())
+                                        .build())
+                        .addParameter(
+                                ParameterSpec.builder(Types.SQLiteStatement, "statement")
+                                        .addAnnotation(Annotations.nonNull())
+                                        .build())
+                        .addParameter(
+                                ParameterSpec.builder(schema.getModelClassName(), "model")
+                                        .addAnnotation(Annotations.nonNull())
+                                        .build())
+                        .addParameter(boolean.class, withoutAutoId)
+                        .addParameter(int.class, "offset")
                         .addCode(buildBindArgs())
                         .build()
         );
@@ -593,9 +654,138 @@ public class SchemaWriter extends BaseWriter {
                         .build()
         );
 
+        methodSpecs.add(
+                MethodSpec.methodBuilder("populateFromCursor")
+                        .addAnnotation(Annotations.override())
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(
+                                ParameterSpec.builder(Types.OrmaConnection, "conn")
+                                        .addAnnotation(Annotations.nonNull())
+                                        .build())
+                        .addParameter(
+                                ParameterSpec.builder(schema.getModelClassName(), "model")
+                                        .addAnnotation(Annotations.nonNull())
+                                        .build())
+                        .addParameter(
+                                ParameterSpec.builder(Types.Cursor, "cursor")
+                                        .addAnnotation(Annotations.nonNull())
+                                        .build())
+                        .addParameter(int.class, "offset")
+                        .addCode(buildPopulateFromCursor())
+                        .build()
+        );
+
+        methodSpecs.add(
+                MethodSpec.methodBuilder("isPopulatableFromCursor")
+                        .addAnnotation(Annotations.override())
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(TypeName.BOOLEAN)
+                        .addStatement("return $L", !schema.getConstructorElement().isPresent())
+                        .build()
+        );
+
+        methodSpecs.add(
+                MethodSpec.methodBuilder("buildColumnMap")
+                        .addJavadoc("Resolves the indexes of the columns in {@code cursor} to use in {@code readInto()}.\n"
+                                + "@return Indexes of the columns in {@code cursor}, or {@code -1} for missing ones,"
+                                + " at the positions of the {@code INDEX_*} constants\n")
+                        .addAnnotation(Annotations.nonNull())
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(ArrayTypeName.of(TypeName.INT))
+                        .addParameter(
+                                ParameterSpec.builder(Types.Cursor, "cursor")
+                                        .addAnnotation(Annotations.nonNull())
+                                        .build())
+                        .addCode(buildBuildColumnMap())
+                        .build()
+        );
+
+        if (!schema.getConstructorElement().isPresent()) {
+            methodSpecs.add(
+                    MethodSpec.methodBuilder("readInto")
+                            .addJavadoc("Sets the columns found in {@code cursor} to {@code model},"
+                                    + " without looking up the column names for each row.\n"
+                                    + "Direct associations are not read.\n"
+                                    + "@param columnMap The result of {@link #buildColumnMap(Cursor)} for {@code cursor}\n")
+                            .addModifiers(Modifier.PUBLIC)
+                            .addParameter(
+                                    ParameterSpec.builder(Types.OrmaConnection, "conn")
+                                            .addAnnotation(Annotations.nonNull())
+                                            .build())
+                            .addParameter(
+                                    ParameterSpec.builder(schema.getModelClassName(), "model")
+                                            .addAnnotation(Annotations.nonNull())
+                                            .build())
+                            .addParameter(
+                                    ParameterSpec.builder(Types.Cursor, "cursor")
+                                            .addAnnotation(Annotations.nonNull())
+                                            .build())
+                            .addParameter(
+                                    ParameterSpec.builder(ArrayTypeName.of(TypeName.INT), "columnMap")
+                                            .addAnnotation(Annotations.nonNull())
+                                            .build())
+                            .addCode(buildReadInto())
+                            .build()
+            );
+        }
+
         return methodSpecs;
     }
 
+    /**
+     * @return The positions of the columns in the default result columns, where direct associations are followed by
+     * the columns of the associated tables
+     */
+    private int[] buildColumnIndexes() {
+        List<ColumnDefinition> columns = schema.getColumns();
+        int[] indexes = new int[columns.size()];
+        int offset = 0;
+        for (int i = 0; i < columns.size(); i++) {
+            ColumnDefinition c = columns.get(i);
+            indexes[i] = i + offset;
+            if (c.isDirectAssociation()) {
+                offset += c.getAssociatedSchema().calculateConsumingColumnSize();
+            }
+        }
+        return indexes;
+    }
+
+    private String columnIndexConstantName(ColumnDefinition column) {
+        String name = Strings.toUpperSnakeCase(column.name);
+        for (ColumnDefinition c : schema.getColumns()) {
+            if (c != column && Strings.toUpperSnakeCase(c.name).equals(name)) {
+                // e.g. fooBar and foo_bar, which are distinguished by the names as they are
+                return "INDEX_" + column.name;
+            }
+        }
+        return "INDEX_" + name;
+    }
+
+    private CodeBlock buildBuildColumnMap() {
+        CodeBlock.Builder builder = CodeBlock.builder();
+        builder.addStatement("int[] columnMap = new int[$L]", schema.calculateConsumingColumnSize());
+        builder.addStatement("$T.fill(columnMap, -1)", Types.Arrays);
+        for (ColumnDefinition c : schema.getColumns()) {
+            builder.addStatement("columnMap[$L] = cursor.getColumnIndex($S)", columnIndexConstantName(c), c.columnName);
+        }
+        builder.addStatement("return columnMap");
+        return builder.build();
+    }
+
+    private CodeBlock buildReadInto() {
+        CodeBlock.Builder builder = CodeBlock.builder();
+        builder.addStatement("int index");
+        for (ColumnDefinition c : schema.getColumns()) {
+            if (c.isDirectAssociation()) {
+                continue;
+            }
+            builder.beginControlFlow("if ((index = columnMap[$L]) != -1)", columnIndexConstantName(c));
+            builder.addStatement("model.$L", c.buildSetColumnExpr(buildGetValueFromCursor(c, CodeBlock.of("index"))));
+            builder.endControlFlow();
+        }
+        return builder.build();
+    }
+
     private CodeBlock buildFieldInitializations() {
         CodeBlock.Builder code = CodeBlock.builder();
         code.addStatement("this.$N = $L", primaryKeyFieldSpecDef.fieldSpec, primaryKeyFieldSpecDef.initializer);
@@ -667,7 +857,7 @@ public class SchemaWriter extends BaseWriter {
 
         List<ColumnDefinition> columns = schema.getColumns();
         for (int i = 0; i < columns.size(); i++) {
-            int n = i + 1; // bind index starts 1
+            CodeBlock n = CodeBlock.of("offset + $L", i + 1); // bind index starts 1
             ColumnDefinition c = columns.get(i);
 
             if (c.isNullableInJava()) {
@@ -792,13 +982,23 @@ public class SchemaWriter extends BaseWriter {
             CodeBlock.Builder block = CodeBlock.builder();
 
             block.addStatement("$T model = new $T()", schema.getModelClassName(), schema.getModelClassName());
-            block.add(buildPopulateValuesFromCursor(column -> CodeBlock.of("model.")));
+            block.addStatement("populateFromCursor(conn, model, cursor, offset)");
             block.addStatement("return model");
 
             return block.build();
         });
     }
 
+    private CodeBlock buildPopulateFromCursor() {
+        if (schema.getConstructorElement().isPresent()) {
+            return CodeBlock.builder()
+                    .addStatement("throw new $T($S)", Types.UnsupportedOperationException,
+                            schema.getModelClassName().simpleName() + " is created by its @Setter constructor")
+                    .build();
+        }
+        return buildPopulateValuesFromCursor(column -> CodeBlock.of("model."));
+    }
+
     private String extractColumnNameFromParameterElement(VariableElement parameterElement) {
         Setter setter = parameterElement.getAnnotation(Setter.class);
         if (setter != null && !Strings.isEmpty(setter.value())) {
@@ -27,4 +27,11 @@ public class Strings {
     public static String toUpperFirst(@NonNull String s) {
         return s.substring(0, 1).toUpperCase() + s.substring(1);
     }
+
+    /**
+     * @return {@code "CREATED_TIME"} for {@code "createdTime"}
+     */
+    public static String toUpperSnakeCase(@NonNull String s) {
+        return s.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase();
+    }
 }
@@ -65,6 +65,8 @@ public class Types {
 
     public static final ClassName SQLiteStatement = ClassName.get("android.database.sqlite", "SQLiteStatement");
 
+    public static final ClassName TextUtils = ClassName.get("android.text", "TextUtils");
+
     public static final ClassName SQLiteConstraintException = ClassName
             .get("android.database.sqlite", "SQLiteConstraintException");
 
@@ -110,6 +112,8 @@ public class Types {
 
     public static final ClassName Inserter = ClassName.get(ormaPackageName, "Inserter");
 
+    public static final ClassName BulkUpdater = ClassName.get(ormaPackageName, "BulkUpdater");
+
     public static final ClassName SingleAssociation = ClassName.get(ormaPackageName, "SingleAssociation");
 
     public static final ClassName ModelFactory = ClassName.get(ormaPackageName, "ModelFactory");
@@ -138,6 +142,8 @@ public class Types {
 
     public static final ClassName IllegalArgumentException = ClassName.get(IllegalArgumentException.class);
 
+    public static final ClassName UnsupportedOperationException = ClassName.get(UnsupportedOperationException.class);
+
     private static final Set<TypeName> integerTypes = new HashSet<>(java.util.Arrays.asList(
             TypeName.BYTE,
             TypeName.BYTE.box(),
@@ -223,6 +229,10 @@ public class Types {
         return ParameterizedTypeName.get(Inserter, typeName);
     }
 
+    public static ParameterizedTypeName getBulkUpdater(TypeName typeName) {
+        return ParameterizedTypeName.get(BulkUpdater, typeName);
+    }
+
     public static ParameterizedTypeName getSingle(TypeName typeName) {
         return ParameterizedTypeName.get(Single, typeName);
     }